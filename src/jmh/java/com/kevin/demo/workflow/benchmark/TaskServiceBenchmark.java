@@ -0,0 +1,86 @@
+package com.kevin.demo.workflow.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kevin.demo.workflow.domain.Task;
+
+/**
+ * Single TaskService transitions. Tasks are moved into the required starting state
+ * outside the measured region (Level.Invocation setup; each op is a DB round trip,
+ * well above the granularity where that setup skews results).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TaskServiceBenchmark {
+
+    @State(Scope.Thread)
+    public static class CreatedTask {
+        Long id;
+
+        @Setup(Level.Invocation)
+        public void create(WorkflowContext ctx) {
+            id = ctx.taskService.createTask("bench", "benchmark task").getId();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class QueuedTask {
+        Long id;
+
+        @Setup(Level.Invocation)
+        public void create(WorkflowContext ctx) {
+            id = ctx.createQueuedTask();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ProcessingTask {
+        Long id;
+
+        @Setup(Level.Invocation)
+        public void create(WorkflowContext ctx) {
+            id = ctx.createProcessingTask();
+        }
+    }
+
+    @Benchmark
+    public Task createTask(WorkflowContext ctx) {
+        return ctx.taskService.createTask("bench", "benchmark task");
+    }
+
+    @Benchmark
+    public Task submit(WorkflowContext ctx, CreatedTask task) {
+        return ctx.taskService.submit(task.id);
+    }
+
+    @Benchmark
+    public boolean claimForProcessing(WorkflowContext ctx, QueuedTask task) {
+        return ctx.taskService.claimForProcessing(task.id);
+    }
+
+    @Benchmark
+    public Task complete(WorkflowContext ctx, ProcessingTask task) {
+        return ctx.taskService.complete(task.id);
+    }
+
+    @Benchmark
+    public Task failAndRetry(WorkflowContext ctx, ProcessingTask task) {
+        ctx.taskService.fail(task.id, "benchmark failure");
+        return ctx.taskService.retry(task.id);
+    }
+}
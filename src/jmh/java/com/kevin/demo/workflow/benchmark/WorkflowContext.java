@@ -0,0 +1,112 @@
+package com.kevin.demo.workflow.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import com.kevin.demo.workflow.TaskWorkflowApplication;
+import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.scheduler.FailedTaskRetrier;
+import com.kevin.demo.workflow.scheduler.QueuedTaskPoller;
+import com.kevin.demo.workflow.scheduler.WorkflowScheduler;
+import com.kevin.demo.workflow.service.TaskService;
+import com.kevin.demo.workflow.worker.TaskExecutionEngine;
+import com.kevin.demo.workflow.worker.TaskHandler;
+
+/**
+ * Full application context on an in-memory H2 database (MySQL mode, schema from
+ * the Flyway migrations). Background loops are disabled so the benchmarks drive
+ * them explicitly.
+ */
+@State(Scope.Benchmark)
+public class WorkflowContext {
+
+    ConfigurableApplicationContext context;
+    TaskService taskService;
+    QueuedTaskPoller poller;
+    FailedTaskRetrier retrier;
+    WorkflowScheduler scheduler;
+    TaskExecutionEngine engine;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(TaskWorkflowApplication.class, BenchmarkHandlers.class)
+                .web(WebApplicationType.NONE)
+                // command-line args so they override application.properties
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.show-sql=false",
+                        "--workflow.scheduler.enabled=false",
+                        // no lease heartbeats without the scheduler; scan every shard
+                        "--workflow.shards.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.kevin.demo.workflow=WARN",
+                        "--logging.level.org.hibernate.orm.jdbc.bind=OFF"
+                );
+
+        taskService = context.getBean(TaskService.class);
+        poller = context.getBean(QueuedTaskPoller.class);
+        retrier = context.getBean(FailedTaskRetrier.class);
+        scheduler = context.getBean(WorkflowScheduler.class);
+        engine = context.getBean(TaskExecutionEngine.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    Long createQueuedTask() {
+        Long id = taskService.createTask("bench", "benchmark task").getId();
+        taskService.submit(id);
+        return id;
+    }
+
+    Long createProcessingTask() {
+        Long id = createQueuedTask();
+        taskService.claimForProcessing(id);
+        return id;
+    }
+
+    void awaitIdleEngine() {
+        while (engine.inFlight() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    // completes every task immediately so the cycle measures scheduling overhead only
+    @Configuration(proxyBeanMethods = false)
+    static class BenchmarkHandlers {
+
+        @Bean
+        @Order(Ordered.HIGHEST_PRECEDENCE)
+        TaskHandler noopTaskHandler() {
+            return new TaskHandler() {
+                @Override
+                public String name() {
+                    return "noop";
+                }
+
+                @Override
+                public boolean supports(Task task) {
+                    return true;
+                }
+
+                @Override
+                public void handle(Task task) {
+                }
+            };
+        }
+    }
+}
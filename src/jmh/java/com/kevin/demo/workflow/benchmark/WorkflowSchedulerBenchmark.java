@@ -0,0 +1,57 @@
+package com.kevin.demo.workflow.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scheduler cycles: claim a batch of QUEUED tasks, run them through the execution
+ * engine (no-op handler) and wait until every task is COMPLETED. Run single-threaded:
+ * the queued batch is shared state.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WorkflowSchedulerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class QueuedBatch {
+
+        @Param({"1", "50"})
+        int batchSize;
+
+        @Setup(Level.Invocation)
+        public void queue(WorkflowContext ctx) {
+            for (int i = 0; i < batchSize; i++) {
+                ctx.createQueuedTask();
+            }
+        }
+    }
+
+    @Benchmark
+    public long claimAndExecuteBatch(WorkflowContext ctx, QueuedBatch batch) {
+        long delay = ctx.poller.pollOnce();
+        ctx.awaitIdleEngine();
+        return delay;
+    }
+
+    // cost of the retry and timeout scans, which run even when nothing is due
+    @Benchmark
+    public void maintenanceScans(WorkflowContext ctx) {
+        ctx.retrier.pollOnce();
+        ctx.scheduler.pollExpiredLeases();
+    }
+}
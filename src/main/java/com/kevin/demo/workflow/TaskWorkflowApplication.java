@@ -2,10 +2,10 @@ package com.kevin.demo.workflow;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
-@EnableScheduling
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class TaskWorkflowApplication {
 
 	public static void main(String[] args) {
@@ -1,15 +1,27 @@
 package com.kevin.demo.workflow.api;
 
 import com.kevin.demo.workflow.api.dto.ApiError;
+import com.kevin.demo.workflow.service.IdempotencyKeyReuseException;
+import com.kevin.demo.workflow.service.InvalidIdempotencyKeyException;
+import com.kevin.demo.workflow.service.InvalidPayloadException;
+import com.kevin.demo.workflow.service.InvalidRetryPolicyException;
+import com.kevin.demo.workflow.service.InvalidTemplateException;
+import com.kevin.demo.workflow.service.PayloadTooLargeException;
+import com.kevin.demo.workflow.service.StreamUnavailableException;
 import jakarta.servlet.http.HttpServletRequest;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.time.Instant;
+import java.util.stream.Collectors;
 
 @RestControllerAdvice
 public class ApiExceptionHandler {
@@ -34,6 +46,73 @@ public class ApiExceptionHandler {
         return build(HttpStatus.CONFLICT, ex.getMessage(), request);
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiError> handleConcurrentUpdate(
+            OptimisticLockingFailureException ex,
+            HttpServletRequest request
+    ) {
+        // lost a race on an entity-based write; the request can be retried
+        return build(HttpStatus.CONFLICT, "Task changed concurrently, retry the request", request);
+    }
+
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<ApiError> handleInvalidBody(
+            MethodArgumentNotValidException ex,
+            HttpServletRequest request
+    ) {
+        String message = ex.getBindingResult().getFieldErrors().stream()
+                .map(e -> e.getField() + " " + e.getDefaultMessage())
+                .collect(Collectors.joining(", "));
+        return build(HttpStatus.BAD_REQUEST, message, request);
+    }
+
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ApiError> handleUnreadableBody(
+            HttpMessageNotReadableException ex,
+            HttpServletRequest request
+    ) {
+        return build(HttpStatus.BAD_REQUEST, "Malformed request body", request);
+    }
+
+    @ExceptionHandler({
+            InvalidCursorException.class,
+            InvalidIdempotencyKeyException.class,
+            InvalidPayloadException.class,
+            InvalidRetryPolicyException.class,
+            InvalidTemplateException.class,
+            MethodArgumentTypeMismatchException.class
+    })
+    public ResponseEntity<ApiError> handleBadParameter(
+            RuntimeException ex,
+            HttpServletRequest request
+    ) {
+        return build(HttpStatus.BAD_REQUEST, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(IdempotencyKeyReuseException.class)
+    public ResponseEntity<ApiError> handleKeyReuse(
+            IdempotencyKeyReuseException ex,
+            HttpServletRequest request
+    ) {
+        return build(HttpStatus.UNPROCESSABLE_CONTENT, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(PayloadTooLargeException.class)
+    public ResponseEntity<ApiError> handlePayloadTooLarge(
+            PayloadTooLargeException ex,
+            HttpServletRequest request
+    ) {
+        return build(HttpStatus.CONTENT_TOO_LARGE, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(StreamUnavailableException.class)
+    public ResponseEntity<ApiError> handleStreamUnavailable(
+            StreamUnavailableException ex,
+            HttpServletRequest request
+    ) {
+        return build(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), request);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiError> handleGeneric(
             Exception ex,
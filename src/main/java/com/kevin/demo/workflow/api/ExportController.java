@@ -0,0 +1,56 @@
+package com.kevin.demo.workflow.api;
+
+import java.time.Instant;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.kevin.demo.workflow.service.TaskExportService;
+
+/**
+ * Full and incremental NDJSON exports for offline analytics. The body is written
+ * from the database cursor while it is read, so the response starts immediately
+ * and has no Content-Length. The {@value #WATERMARK_HEADER} header carries the
+ * timestamp the export went up to; the next incremental export passes it back.
+ */
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    public static final String WATERMARK_HEADER = "X-Export-Watermark";
+
+    private final TaskExportService exportService;
+
+    public ExportController(TaskExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping("/tasks")
+    public ResponseEntity<StreamingResponseBody> tasks(
+            @RequestParam(required = false) Instant updatedAfter
+    ) {
+        Instant until = exportService.taskWatermark(updatedAfter);
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(WATERMARK_HEADER, until.toString())
+                .body(out -> exportService.exportTasks(updatedAfter, until, out));
+    }
+
+    @GetMapping("/transitions")
+    public ResponseEntity<StreamingResponseBody> transitions(
+            @RequestParam(required = false) Instant createdAfter
+    ) {
+        Instant until = exportService.transitionWatermark(createdAfter);
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(WATERMARK_HEADER, until.toString())
+                .body(out -> exportService.exportTransitions(createdAfter, until, out));
+    }
+}
@@ -0,0 +1,8 @@
+package com.kevin.demo.workflow.api;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor) {
+        super("Invalid cursor: " + cursor);
+    }
+}
@@ -1,39 +1,127 @@
 package com.kevin.demo.workflow.api;
 
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.kevin.demo.workflow.api.dto.CreateTaskRequest;
+import com.kevin.demo.workflow.api.dto.CreateTasksBatchRequest;
 import com.kevin.demo.workflow.api.dto.FailTaskRequest;
+import com.kevin.demo.workflow.api.dto.LeaseHeartbeatRequest;
+import com.kevin.demo.workflow.api.dto.LeaseHeartbeatResponse;
+import com.kevin.demo.workflow.api.dto.TaskPageResponse;
 import com.kevin.demo.workflow.api.dto.TaskResponse;
 import com.kevin.demo.workflow.api.mapper.TaskMapper;
+import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.domain.TaskState;
+import com.kevin.demo.workflow.repository.TaskFilter;
 import com.kevin.demo.workflow.repository.TaskRepository;
+import com.kevin.demo.workflow.repository.TaskSummary;
 import com.kevin.demo.workflow.repository.TaskTransitionRepository;
+import com.kevin.demo.workflow.service.IdempotencyService;
 import com.kevin.demo.workflow.service.TaskService;
 
+import jakarta.validation.Valid;
+
 @RestController
 @RequestMapping("api/tasks")
 public class TaskController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
+    // retries with the same key get the first response instead of running again
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final TaskService taskService;
+    private final IdempotencyService idempotency;
 
     public TaskController(TaskService taskService,
+                          IdempotencyService idempotency,
                           TaskRepository taskRepository,
                           TaskTransitionRepository transitionRepository) {
         this.taskService = taskService;
+        this.idempotency = idempotency;
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public TaskResponse create(@RequestBody CreateTaskRequest req) {
-        return TaskMapper.toResponse(
-            taskService.createTask(req.title(), req.description())
+    public TaskResponse create(@Valid @RequestBody CreateTaskRequest req,
+                               @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotency.execute("tasks.create", idempotencyKey, req, TaskResponse.class, () ->
+                TaskMapper.toResponse(
+                    taskService.createTask(TaskMapper.toEntity(req), TaskMapper.dependsOn(req))
+                )
+        );
+    }
+
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<TaskResponse> createBatch(@Valid @RequestBody CreateTasksBatchRequest req,
+                                          @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        List<Task> tasks = req.tasks().stream()
+                .map(TaskMapper::toEntity)
+                .toList();
+
+        List<List<Long>> dependsOn = req.tasks().stream()
+                .map(TaskMapper::dependsOn)
+                .toList();
+
+        return List.of(idempotency.execute("tasks.create-batch", idempotencyKey, req, TaskResponse[].class, () ->
+                taskService.createTasks(tasks, dependsOn, Boolean.TRUE.equals(req.submit())).stream()
+                        .map(TaskMapper::toResponse)
+                        .toArray(TaskResponse[]::new)
+        ));
+    }
+
+    // newest first; pass nextCursor back as cursor for the following page
+    @GetMapping
+    public TaskPageResponse list(
+            @RequestParam(required = false) TaskState state,
+            @RequestParam(required = false) String queue,
+            @RequestParam(required = false) Instant createdFrom,
+            @RequestParam(required = false) Instant createdTo,
+            @RequestParam(required = false) Instant updatedFrom,
+            @RequestParam(required = false) Instant updatedTo,
+            @RequestParam(required = false) Integer minAttempts,
+            @RequestParam(required = false) Integer maxAttempts,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        TaskFilter filter = new TaskFilter(
+                state, queue, createdFrom, createdTo, updatedFrom, updatedTo, minAttempts, maxAttempts
+        );
+        TaskCursor after = cursor == null ? null : TaskCursor.decode(cursor);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // one extra row tells whether another page follows
+        List<TaskSummary> rows = taskService.listTasks(
+                filter,
+                after == null ? null : after.updatedAt(),
+                after == null ? null : after.id(),
+                pageSize + 1
+        );
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            TaskSummary last = rows.get(pageSize - 1);
+            nextCursor = new TaskCursor(last.updatedAt(), last.id()).encode();
+        }
+
+        return new TaskPageResponse(
+                rows.stream().map(TaskMapper::toSummaryResponse).toList(),
+                nextCursor
         );
     }
 
@@ -42,14 +130,28 @@ public class TaskController {
         return TaskMapper.toResponse(taskService.get(id));
     }
 
+    // ids of the tasks this one waits for
+    @GetMapping("/{id}/dependencies")
+    public List<Long> dependencies(@PathVariable Long id) {
+        return taskService.getDependencies(id);
+    }
+
     @PostMapping("/{id}/submit")
-    public TaskResponse submit(@PathVariable Long id) {
-        return TaskMapper.toResponse(taskService.submit(id));
+    public TaskResponse submit(@PathVariable Long id,
+                               @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotency.execute("tasks.submit", idempotencyKey, id, TaskResponse.class, () ->
+                TaskMapper.toResponse(taskService.submit(id))
+        );
     }
 
+    // external workers pass their workerId and keep the lease alive through
+    // /leases/heartbeat; without one the task is leased to this node
     @PostMapping("/{id}/claim")
-    public TaskResponse claim(@PathVariable Long id) {
-        boolean claimed = taskService.claimForProcessing(id);
+    public TaskResponse claim(@PathVariable Long id,
+                              @RequestParam(required = false) String workerId) {
+        boolean claimed = workerId == null
+                ? taskService.claimForProcessing(id)
+                : taskService.claimForProcessing(id, workerId);
 
         if (!claimed) {
             throw new IllegalStateException(
@@ -61,20 +163,36 @@ public class TaskController {
     }
 
     @PostMapping("/{id}/complete")
-    public TaskResponse complete(@PathVariable Long id) {
-        return TaskMapper.toResponse(taskService.complete(id));
+    public TaskResponse complete(@PathVariable Long id,
+                                 @RequestParam(required = false) String workerId,
+                                 @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotency.execute("tasks.complete", idempotencyKey, Arrays.asList(id, workerId), TaskResponse.class, () ->
+                TaskMapper.toResponse(taskService.complete(id, workerId))
+        );
     }
 
     @PostMapping("/{id}/fail")
     public TaskResponse fail(@PathVariable Long id,
-                            @RequestBody FailTaskRequest req) {
-        return TaskMapper.toResponse(
-                taskService.fail(id, req.message())
+                            @RequestParam(required = false) String workerId,
+                            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                            @Valid @RequestBody FailTaskRequest req) {
+        return idempotency.execute("tasks.fail", idempotencyKey, Arrays.asList(id, workerId, req), TaskResponse.class, () ->
+                TaskMapper.toResponse(taskService.fail(id, req.message(), workerId, req.errorClass()))
+        );
+    }
+
+    @PostMapping("/leases/heartbeat")
+    public LeaseHeartbeatResponse heartbeat(@Valid @RequestBody LeaseHeartbeatRequest req) {
+        return new LeaseHeartbeatResponse(
+                taskService.renewLeases(req.workerId(), req.taskIds())
         );
     }
 
     @PostMapping("/{id}/retry")
-    public TaskResponse retry(@PathVariable Long id) {
-        return TaskMapper.toResponse(taskService.retry(id));
+    public TaskResponse retry(@PathVariable Long id,
+                              @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotency.execute("tasks.retry", idempotencyKey, id, TaskResponse.class, () ->
+                TaskMapper.toResponse(taskService.retry(id))
+        );
     }
 }
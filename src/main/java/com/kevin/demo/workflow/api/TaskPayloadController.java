@@ -0,0 +1,78 @@
+package com.kevin.demo.workflow.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.kevin.demo.workflow.api.dto.TaskPayloadResponse;
+import com.kevin.demo.workflow.api.mapper.TaskPayloadMapper;
+import com.kevin.demo.workflow.domain.TaskPayload;
+import com.kevin.demo.workflow.service.TaskPayloadService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Raw payload and result bodies of a task. Uploads are read from the request stream
+ * and downloads written to the response as they are decoded, so neither is held in
+ * memory whole; the request's Content-Type is stored and returned on download.
+ */
+@RestController
+@RequestMapping("/api/tasks")
+public class TaskPayloadController {
+
+    private final TaskPayloadService payloadService;
+
+    public TaskPayloadController(TaskPayloadService payloadService) {
+        this.payloadService = payloadService;
+    }
+
+    // settable until the task is claimed
+    @PutMapping("/{id}/payload")
+    public TaskPayloadResponse putPayload(@PathVariable Long id, HttpServletRequest request) throws IOException {
+        return TaskPayloadMapper.toResponse(
+                payloadService.write(id, TaskPayload.Kind.PAYLOAD, request.getContentType(), request.getInputStream(), null)
+        );
+    }
+
+    @GetMapping("/{id}/payload")
+    public ResponseEntity<StreamingResponseBody> getPayload(@PathVariable Long id) throws IOException {
+        return download(id, TaskPayload.Kind.PAYLOAD);
+    }
+
+    // settable while the task is PROCESSING, by the lease holder when workerId is given
+    @PutMapping("/{id}/result")
+    public TaskPayloadResponse putResult(@PathVariable Long id,
+                                         @RequestParam(required = false) String workerId,
+                                         HttpServletRequest request) throws IOException {
+        return TaskPayloadMapper.toResponse(
+                payloadService.write(id, TaskPayload.Kind.RESULT, request.getContentType(), request.getInputStream(), workerId)
+        );
+    }
+
+    @GetMapping("/{id}/result")
+    public ResponseEntity<StreamingResponseBody> getResult(@PathVariable Long id) throws IOException {
+        return download(id, TaskPayload.Kind.RESULT);
+    }
+
+    // opened before the response starts, so a missing body is still a 404
+    private ResponseEntity<StreamingResponseBody> download(Long id, TaskPayload.Kind kind) throws IOException {
+        TaskPayloadService.Body body = payloadService.open(id, kind);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(body.payload().getContentType()))
+                .contentLength(body.payload().getSize())
+                .body(out -> {
+                    try (InputStream in = body.stream()) {
+                        in.transferTo(out);
+                    }
+                });
+    }
+}
@@ -0,0 +1,105 @@
+package com.kevin.demo.workflow.api;
+
+import java.io.IOException;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.domain.TaskState;
+import com.kevin.demo.workflow.service.StreamProperties;
+import com.kevin.demo.workflow.service.TaskService;
+import com.kevin.demo.workflow.service.TaskStatusBroadcaster;
+import com.kevin.demo.workflow.service.TaskStatusBroadcaster.Subscription;
+import com.kevin.demo.workflow.service.TaskStatusChange;
+import com.kevin.demo.workflow.service.TaskStatusFilter;
+import com.kevin.demo.workflow.service.TaskStatusSink;
+
+/**
+ * Server-Sent Events streams of task status changes, instead of polling
+ * {@code GET /api/tasks/{id}}. Every change is a {@code status} event carrying a
+ * {@link TaskStatusChange}; an {@code overflow} event means the client fell behind
+ * and was disconnected, and should re-read and reconnect.
+ */
+@RestController
+@RequestMapping("/api/tasks")
+public class TaskStreamController {
+
+    private final TaskService taskService;
+    private final TaskStatusBroadcaster broadcaster;
+    private final StreamProperties properties;
+
+    public TaskStreamController(TaskService taskService,
+                                TaskStatusBroadcaster broadcaster,
+                                StreamProperties properties) {
+        this.taskService = taskService;
+        this.broadcaster = broadcaster;
+        this.properties = properties;
+    }
+
+    // current state first, then every change; ends once the task is COMPLETED or DEAD_LETTER
+    @GetMapping(path = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter task(@PathVariable Long id) {
+        SseEmitter emitter = new SseEmitter(properties.timeout().toMillis());
+        Subscription subscription = open(TaskStatusFilter.forTask(id), emitter);
+
+        // read after subscribing, so no change between the read and the first event is lost;
+        // not from the cache, which may hold a state that changed on another node
+        Task task;
+        try {
+            task = taskService.getUncached(id);
+        } catch (RuntimeException e) {
+            subscription.close();
+            throw e;
+        }
+        subscription.offer(new TaskStatusChange(
+                task.getId(), task.getQueue(), task.getState(), null, "SNAPSHOT", task.getUpdatedAt()
+        ));
+        return emitter;
+    }
+
+    // changes of every task matching the filter, from now on; no filter streams all changes
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter tasks(@RequestParam(required = false) String queue,
+                            @RequestParam(required = false) TaskState state) {
+        SseEmitter emitter = new SseEmitter(properties.timeout().toMillis());
+        open(new TaskStatusFilter(null, queue, state), emitter);
+        return emitter;
+    }
+
+    private Subscription open(TaskStatusFilter filter, SseEmitter emitter) {
+        Subscription subscription = broadcaster.subscribe(filter, new EmitterSink(emitter));
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        return subscription;
+    }
+
+    private record EmitterSink(SseEmitter emitter) implements TaskStatusSink {
+
+        @Override
+        public void send(TaskStatusChange change) throws IOException {
+            emitter.send(SseEmitter.event().name("status").data(change, MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+
+        @Override
+        public void overflow() throws IOException {
+            emitter.send(SseEmitter.event().name("overflow").data("Subscriber fell behind; re-read and reconnect"));
+        }
+
+        @Override
+        public void complete() {
+            emitter.complete();
+        }
+    }
+}
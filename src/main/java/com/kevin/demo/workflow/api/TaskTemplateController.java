@@ -0,0 +1,57 @@
+package com.kevin.demo.workflow.api;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kevin.demo.workflow.api.dto.CreateTaskTemplateRequest;
+import com.kevin.demo.workflow.api.dto.TaskTemplateResponse;
+import com.kevin.demo.workflow.api.mapper.TaskTemplateMapper;
+import com.kevin.demo.workflow.service.TaskTemplateService;
+
+import jakarta.validation.Valid;
+
+@RestController
+@RequestMapping("api/task-templates")
+public class TaskTemplateController {
+
+    private final TaskTemplateService templateService;
+
+    public TaskTemplateController(TaskTemplateService templateService) {
+        this.templateService = templateService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public TaskTemplateResponse create(@Valid @RequestBody CreateTaskTemplateRequest req) {
+        return TaskTemplateMapper.toResponse(
+                templateService.create(TaskTemplateMapper.toEntity(req))
+        );
+    }
+
+    @GetMapping
+    public List<TaskTemplateResponse> list() {
+        return templateService.list().stream()
+                .map(TaskTemplateMapper::toResponse)
+                .toList();
+    }
+
+    @GetMapping("/{id}")
+    public TaskTemplateResponse get(@PathVariable Long id) {
+        return TaskTemplateMapper.toResponse(templateService.get(id));
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void delete(@PathVariable Long id) {
+        templateService.delete(id);
+    }
+}
@@ -3,7 +3,7 @@ package com.kevin.demo.workflow.api;
 import com.kevin.demo.workflow.api.dto.TaskTransitionResponse;
 import com.kevin.demo.workflow.api.mapper.TaskTransitionMapper;
 import com.kevin.demo.workflow.domain.TaskTransition;
-import com.kevin.demo.workflow.repository.TaskTransitionRepository;
+import com.kevin.demo.workflow.service.TaskService;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -12,17 +12,16 @@ import java.util.List;
 @RequestMapping("/api/tasks/{taskId}/transitions")
 public class TaskTransitionController {
 
-    private final TaskTransitionRepository transitionRepository;
+    private final TaskService taskService;
 
-    public TaskTransitionController(TaskTransitionRepository transitionRepository) {
-        this.transitionRepository = transitionRepository;
+    public TaskTransitionController(TaskService taskService) {
+        this.taskService = taskService;
     }
 
     @GetMapping
     public List<TaskTransitionResponse> list(@PathVariable Long taskId) {
 
-        List<TaskTransition> transitions =
-                transitionRepository.findByTaskIdOrderByCreatedAtAsc(taskId);
+        List<TaskTransition> transitions = taskService.getTransitions(taskId);
 
         return transitions.stream()
                 .map(TaskTransitionMapper::toResponse)
@@ -1,6 +1,28 @@
 package com.kevin.demo.workflow.api.dto;
 
+import java.time.Instant;
+import java.util.List;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
 public record CreateTaskRequest(
-    String title,
-    String description
+    @NotBlank String title,
+    String description,
+    // higher is claimed first within the queue; defaults to 0
+    Integer priority,
+    // fair-share queue (tenant, producer); defaults to "default"
+    @Size(max = 64) String queue,
+    // kind of work, for per-type claim limits and handler routing; defaults to "default"
+    @Size(max = 64) String taskType,
+    // retry policy from workflow.retry.policies; defaults to the task type's policy
+    @Size(max = 64) String retryPolicy,
+    // attempts before the task is dead-lettered; defaults to the retry policy's
+    @Min(1) @Max(100) Integer maxAttempts,
+    // held in SCHEDULED until this time, then queued; omit to create as usual
+    Instant runAt,
+    // existing tasks that must complete first; the task is queued once they have
+    @Size(max = 1000) List<Long> dependsOn
 ) {}
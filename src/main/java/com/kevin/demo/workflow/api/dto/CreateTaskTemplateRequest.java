@@ -0,0 +1,16 @@
+package com.kevin.demo.workflow.api.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public record CreateTaskTemplateRequest(
+    @NotBlank @Size(max = 128) String name,
+    @NotBlank String title,
+    String description,
+    // Spring cron syntax with seconds, e.g. "0 */15 * * * *"
+    @NotBlank @Size(max = 128) String cron,
+    // zone the cron is evaluated in; defaults to UTC
+    @Size(max = 64) String zone,
+    Integer priority,
+    @Size(max = 64) String queue
+) {}
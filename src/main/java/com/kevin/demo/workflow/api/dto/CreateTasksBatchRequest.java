@@ -0,0 +1,13 @@
+package com.kevin.demo.workflow.api.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+public record CreateTasksBatchRequest(
+    @NotEmpty @Size(max = 5000) List<@Valid CreateTaskRequest> tasks,
+    // queue every task right away instead of leaving it CREATED; defaults to false
+    Boolean submit
+) {}
@@ -1,3 +1,10 @@
 package com.kevin.demo.workflow.api.dto;
 
-public record FailTaskRequest(String message) {}
+import jakarta.validation.constraints.Size;
+
+public record FailTaskRequest(
+    String message,
+    // exception class of the failure, matched against the retry policy's
+    // retry-on/abort-on lists; omit if there is none
+    @Size(max = 255) String errorClass
+) {}
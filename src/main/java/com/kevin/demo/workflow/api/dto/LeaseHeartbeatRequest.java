@@ -0,0 +1,12 @@
+package com.kevin.demo.workflow.api.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+public record LeaseHeartbeatRequest(
+    @NotBlank @Size(max = 64) String workerId,
+    @NotEmpty @Size(max = 1000) List<Long> taskIds
+) {}
@@ -0,0 +1,8 @@
+package com.kevin.demo.workflow.api.dto;
+
+import java.util.List;
+
+// tasks requested but missing from `renewed` are no longer held and must be abandoned
+public record LeaseHeartbeatResponse(
+        List<Long> renewed
+) {}
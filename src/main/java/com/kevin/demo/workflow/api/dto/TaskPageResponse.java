@@ -0,0 +1,9 @@
+package com.kevin.demo.workflow.api.dto;
+
+import java.util.List;
+
+// nextCursor is null on the last page
+public record TaskPageResponse(
+        List<TaskSummaryResponse> items,
+        String nextCursor
+) {}
@@ -0,0 +1,14 @@
+package com.kevin.demo.workflow.api.dto;
+
+import java.time.Instant;
+
+public record TaskPayloadResponse(
+        Long taskId,
+        String kind,
+        String contentType,
+        long size,
+        long storedSize,
+        String encoding,
+        boolean offloaded,
+        Instant updatedAt
+) {}
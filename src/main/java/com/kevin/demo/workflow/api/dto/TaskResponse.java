@@ -7,9 +7,17 @@ public record TaskResponse(
         String title,
         String description,
         String state,
+        int priority,
+        String queue,
+        String taskType,
         int attemptCount,
         String lastError,
         int maxAttempts,
+        String retryPolicy,
+        Instant nextAttemptAt,
+        Instant runAt,
+        int pendingDependencies,
+        String leaseOwner,
         Instant createdAt,
         Instant updatedAt
 ) {}
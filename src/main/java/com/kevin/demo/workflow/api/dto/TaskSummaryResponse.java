@@ -0,0 +1,16 @@
+package com.kevin.demo.workflow.api.dto;
+
+import java.time.Instant;
+
+public record TaskSummaryResponse(
+        Long id,
+        String title,
+        String state,
+        int priority,
+        String queue,
+        int attemptCount,
+        int maxAttempts,
+        Instant nextAttemptAt,
+        Instant createdAt,
+        Instant updatedAt
+) {}
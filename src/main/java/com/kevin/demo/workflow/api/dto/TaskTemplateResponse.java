@@ -0,0 +1,18 @@
+package com.kevin.demo.workflow.api.dto;
+
+import java.time.Instant;
+
+public record TaskTemplateResponse(
+        Long id,
+        String name,
+        String title,
+        String description,
+        String cron,
+        String zone,
+        int priority,
+        String queue,
+        boolean enabled,
+        Instant nextRunAt,
+        Instant createdAt,
+        Instant updatedAt
+) {}
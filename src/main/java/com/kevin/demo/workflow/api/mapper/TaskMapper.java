@@ -1,7 +1,12 @@
 package com.kevin.demo.workflow.api.mapper;
 
+import java.util.List;
+
+import com.kevin.demo.workflow.api.dto.CreateTaskRequest;
 import com.kevin.demo.workflow.api.dto.TaskResponse;
+import com.kevin.demo.workflow.api.dto.TaskSummaryResponse;
 import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.repository.TaskSummary;
 
 public class TaskMapper {
 
@@ -13,11 +18,59 @@ public class TaskMapper {
                 task.getTitle(),
                 task.getDescription(),
                 task.getState().name(),
+                task.getPriority(),
+                task.getQueue(),
+                task.getTaskType(),
                 task.getAttemptCount(),
                 task.getLastError(),
                 task.getMaxAttempts(),
+                task.getRetryPolicy(),
+                task.getNextAttemptAt(),
+                task.getRunAt(),
+                task.getPendingDependencies(),
+                task.getLeaseOwner(),
                 task.getCreatedAt(),
                 task.getUpdatedAt()
         );
     }
+
+    public static TaskSummaryResponse toSummaryResponse(TaskSummary task) {
+        return new TaskSummaryResponse(
+                task.id(),
+                task.title(),
+                task.state().name(),
+                task.priority(),
+                task.queue(),
+                task.attemptCount(),
+                task.maxAttempts(),
+                task.nextAttemptAt(),
+                task.createdAt(),
+                task.updatedAt()
+        );
+    }
+
+    public static List<Long> dependsOn(CreateTaskRequest req) {
+        return req.dependsOn() == null ? List.of() : req.dependsOn();
+    }
+
+    public static Task toEntity(CreateTaskRequest req) {
+        Task task = new Task(req.title(), req.description());
+        if (req.priority() != null) {
+            task.setPriority(req.priority());
+        }
+        if (req.queue() != null && !req.queue().isBlank()) {
+            task.setQueue(req.queue());
+        }
+        if (req.taskType() != null && !req.taskType().isBlank()) {
+            task.setTaskType(req.taskType());
+        }
+        if (req.retryPolicy() != null && !req.retryPolicy().isBlank()) {
+            task.setRetryPolicy(req.retryPolicy());
+        }
+        if (req.maxAttempts() != null) {
+            task.setMaxAttempts(req.maxAttempts());
+        }
+        task.setRunAt(req.runAt());
+        return task;
+    }
 }
@@ -0,0 +1,22 @@
+package com.kevin.demo.workflow.api.mapper;
+
+import com.kevin.demo.workflow.api.dto.TaskPayloadResponse;
+import com.kevin.demo.workflow.domain.TaskPayload;
+
+public class TaskPayloadMapper {
+
+    private TaskPayloadMapper() {}
+
+    public static TaskPayloadResponse toResponse(TaskPayload payload) {
+        return new TaskPayloadResponse(
+                payload.getTaskId(),
+                payload.getKind().name(),
+                payload.getContentType(),
+                payload.getSize(),
+                payload.getStoredSize(),
+                payload.getEncoding().name(),
+                payload.getBlobKey() != null,
+                payload.getUpdatedAt()
+        );
+    }
+}
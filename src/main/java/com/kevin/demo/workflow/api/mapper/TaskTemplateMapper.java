@@ -0,0 +1,42 @@
+package com.kevin.demo.workflow.api.mapper;
+
+import com.kevin.demo.workflow.api.dto.CreateTaskTemplateRequest;
+import com.kevin.demo.workflow.api.dto.TaskTemplateResponse;
+import com.kevin.demo.workflow.domain.TaskTemplate;
+
+public class TaskTemplateMapper {
+
+    private TaskTemplateMapper() {}
+
+    public static TaskTemplateResponse toResponse(TaskTemplate template) {
+        return new TaskTemplateResponse(
+                template.getId(),
+                template.getName(),
+                template.getTitle(),
+                template.getDescription(),
+                template.getCronExpression(),
+                template.getZoneId(),
+                template.getPriority(),
+                template.getQueue(),
+                template.isEnabled(),
+                template.getNextRunAt(),
+                template.getCreatedAt(),
+                template.getUpdatedAt()
+        );
+    }
+
+    public static TaskTemplate toEntity(CreateTaskTemplateRequest req) {
+        TaskTemplate template = new TaskTemplate(req.name(), req.title(), req.cron());
+        template.setDescription(req.description());
+        if (req.zone() != null && !req.zone().isBlank()) {
+            template.setZoneId(req.zone());
+        }
+        if (req.priority() != null) {
+            template.setPriority(req.priority());
+        }
+        if (req.queue() != null && !req.queue().isBlank()) {
+            template.setQueue(req.queue());
+        }
+        return template;
+    }
+}
@@ -0,0 +1,70 @@
+package com.kevin.demo.workflow.domain;
+
+import java.time.Instant;
+
+import com.kevin.demo.workflow.repository.PooledIdListener;
+
+import jakarta.persistence.*;
+
+/**
+ * Stored response of a successful request made with an {@code Idempotency-Key}
+ * header. Inserted in the same transaction as the change it describes, so the
+ * unique (scope, idem_key) index lets exactly one of several concurrent retries
+ * commit.
+ */
+@Entity
+@EntityListeners(PooledIdListener.class)
+@Table(
+    name = "idempotency_keys",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_idempotency_keys_scope_key", columnNames = {"scope", "idem_key"})
+    },
+    indexes = {
+        @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at")
+    }
+)
+public class IdempotencyKey {
+
+    // assigned from id blocks before insert (see PooledIdListener)
+    @Id
+    private Long id;
+
+    // operation the key was used for, e.g. "tasks.create"
+    @Column(nullable = false, length = 64)
+    private String scope;
+
+    @Column(name = "idem_key", nullable = false, length = 128)
+    private String key;
+
+    // SHA-256 of the request; a key reused for a different request is rejected
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    @Column(nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String responseBody;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    public IdempotencyKey() {}
+
+    public IdempotencyKey(String scope, String key, String fingerprint, String responseBody) {
+        this.scope = scope;
+        this.key = key;
+        this.fingerprint = fingerprint;
+        this.responseBody = responseBody;
+    }
+
+    @PrePersist
+    void prePersist() {
+        this.createdAt = Instant.now();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getScope() { return scope; }
+    public String getKey() { return key; }
+    public String getFingerprint() { return fingerprint; }
+    public String getResponseBody() { return responseBody; }
+    public Instant getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,31 @@
+package com.kevin.demo.workflow.domain;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// a node taking part in shard ownership; stale once heartbeatAt is a lease duration old
+@Entity
+@Table(name = "scheduler_nodes")
+public class SchedulerNode {
+
+    @Id
+    @Column(name = "node_id", length = 64)
+    private String nodeId;
+
+    @Column(nullable = false)
+    private Instant heartbeatAt;
+
+    protected SchedulerNode() {}
+
+    public SchedulerNode(String nodeId, Instant heartbeatAt) {
+        this.nodeId = nodeId;
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public String getNodeId() { return nodeId; }
+    public Instant getHeartbeatAt() { return heartbeatAt; }
+}
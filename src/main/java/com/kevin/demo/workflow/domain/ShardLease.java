@@ -0,0 +1,28 @@
+package com.kevin.demo.workflow.domain;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// one row per task shard; owned by a scheduler node until expiresAt unless renewed
+@Entity
+@Table(name = "shard_leases")
+public class ShardLease {
+
+    @Id
+    private Integer shard;
+
+    @Column(length = 64)
+    private String owner;
+
+    private Instant expiresAt;
+
+    protected ShardLease() {}
+
+    public Integer getShard() { return shard; }
+    public String getOwner() { return owner; }
+    public Instant getExpiresAt() { return expiresAt; }
+}
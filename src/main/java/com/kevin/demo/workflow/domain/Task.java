@@ -2,16 +2,38 @@ package com.kevin.demo.workflow.domain;
 
 import java.time.Instant;
 
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kevin.demo.workflow.repository.PooledIdListener;
 
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "tasks")
+@EntityListeners(PooledIdListener.class)
+@Table(
+    name = "tasks",
+    indexes = {
+        @Index(name = "idx_tasks_state_updated_at", columnList = "state, updated_at"),
+        @Index(name = "idx_tasks_state_next_attempt_at", columnList = "state, next_attempt_at, shard"),
+        @Index(name = "idx_tasks_updated_at", columnList = "updated_at"),
+        @Index(name = "idx_tasks_state_lease_expires_at", columnList = "state, lease_expires_at, shard"),
+        @Index(name = "idx_tasks_state_queue_priority", columnList = "state, queue_name, priority desc, updated_at"),
+        @Index(name = "idx_tasks_state_run_at", columnList = "state, run_at"),
+        @Index(name = "idx_tasks_state_task_type", columnList = "state, task_type")
+    }
+)
 public class Task {
 
+    public static final String DEFAULT_QUEUE = "default";
+    public static final String DEFAULT_TYPE = "default";
+
+    // fixed for the life of the data: shard_leases holds one row per shard
+    public static final int SHARDS = 64;
+
+    // assigned from id blocks before insert (see PooledIdListener) so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     // optimistic locking version prevents conflicts in concurrent updates
@@ -19,8 +41,10 @@ public class Task {
     @JsonIgnore
     private Long version;
 
+    // stored as varchar so new states don't need a column type change
     @Enumerated(jakarta.persistence.EnumType.STRING)
-    @Column(nullable = false)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 32)
     private TaskState state = TaskState.CREATED;
 
     @Column(nullable = false)
@@ -29,21 +53,70 @@ public class Task {
     @Column(columnDefinition = "TEXT")
     private String description;
 
+    // claimed first within its queue; higher runs earlier
+    @Column(nullable = false)
+    private int priority = 0;
+
+    // fair-share unit (tenant, producer); queues are served by weight, see FairShareAllocator
+    @Column(name = "queue_name", nullable = false, length = 64)
+    private String queue = DEFAULT_QUEUE;
+
+    // kind of work; claims are rate limited and capped per type (see TaskTypeLimiter)
+    @Column(name = "task_type", nullable = false, length = 64)
+    private String taskType = DEFAULT_TYPE;
+
     @Column(nullable = false)
     private int attemptCount = 0;
 
+    // 0 until creation takes it from the retry policy (see RetryPolicies)
     @Column(nullable = false)
-    private int maxAttempts = 5;
+    private int maxAttempts = 0;
+
+    // retry policy named at creation; null falls back to the task type's, then the default
+    @Column(length = 64)
+    private String retryPolicy;
+
+    // delay before the pending retry; decorrelated jitter grows the next one from it
+    @Column(name = "retry_delay_ms")
+    private Long retryDelayMillis;
 
     @Column(columnDefinition = "TEXT")
     private String lastError;
 
+    // when a FAILED task becomes eligible for retry; null in every other state
+    private Instant nextAttemptAt;
+
+    // earliest time the task may be queued; set for delayed and cron-created tasks
+    private Instant runAt;
+
+    // parents not completed yet; a task with dependencies is queued when this reaches 0
+    @Column(nullable = false)
+    private int pendingDependencies = 0;
+
+    // id mod SHARDS; scheduler nodes only scan the shards they lease (see ShardCoordinator).
+    // The scans compute it from the id, as rows written by nodes older than the
+    // column hold its default 0
+    @Column(nullable = false, updatable = false)
+    private int shard;
+
+    // node or worker holding the PROCESSING claim, and until when; null otherwise
+    @Column(length = 64)
+    private String leaseOwner;
+
+    private Instant leaseExpiresAt;
+
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
 
     @Column(nullable = false)
     private Instant updatedAt;
 
+    // when the task entered its current state, and when it entered the one it left
+    // last; set with the state, also by the guarded UPDATEs in TaskRepository
+    private Instant stateEnteredAt;
+
+    private Instant previousStateEnteredAt;
+
     public Task() {}
 
     public Task(String title, String description) {
@@ -57,12 +130,22 @@ public class Task {
         Instant now = Instant.now();
         this.createdAt = now;
         this.updatedAt = now;
+        this.stateEnteredAt = now;
+        // entity listeners run first, so the pooled id is already assigned
+        this.shard = shardOf(id);
+    }
+
+    public static int shardOf(long id) {
+        return (int) Math.floorMod(id, (long) SHARDS);
     }
 
     // Getters and setters  
     public Long getId() {
         return id;
     }
+    public void setId(Long id) {
+        this.id = id;
+    }
     public Long getVersion() {
         return version;
     }
@@ -76,8 +159,11 @@ public class Task {
     }
     public void setState(TaskState newState) {
         if (newState != this.state) {
+            Instant now = Instant.now();
             this.state = newState;
-            this.updatedAt = Instant.now();
+            this.updatedAt = now;
+            this.previousStateEnteredAt = this.stateEnteredAt;
+            this.stateEnteredAt = now;
         }
     }
 
@@ -109,6 +195,17 @@ public class Task {
         this.maxAttempts = maxAttempts;
     }
 
+    public String getRetryPolicy() {
+        return retryPolicy;
+    }
+    public void setRetryPolicy(String retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public Long getRetryDelayMillis() {
+        return retryDelayMillis;
+    }
+
     public String getLastError() {
         return lastError;
     }
@@ -116,10 +213,78 @@ public class Task {
         this.lastError = lastError;
     }
 
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public String getQueue() {
+        return queue;
+    }
+    public void setQueue(String queue) {
+        this.queue = queue;
+    }
+
+    public String getTaskType() {
+        return taskType;
+    }
+    public void setTaskType(String taskType) {
+        this.taskType = taskType;
+    }
+
+    public Instant getRunAt() {
+        return runAt;
+    }
+    public void setRunAt(Instant runAt) {
+        this.runAt = runAt;
+    }
+
+    public int getPendingDependencies() {
+        return pendingDependencies;
+    }
+    public void setPendingDependencies(int pendingDependencies) {
+        this.pendingDependencies = pendingDependencies;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+    public Instant getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+    public void setLease(String owner, Instant expiresAt) {
+        this.leaseOwner = owner;
+        this.leaseExpiresAt = expiresAt;
+    }
+    public void clearLease() {
+        setLease(null, null);
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }   
     public Instant getUpdatedAt() {
         return updatedAt;
     }
+
+    public Instant getStateEnteredAt() {
+        return stateEnteredAt;
+    }
+
+    public Instant getPreviousStateEnteredAt() {
+        return previousStateEnteredAt;
+    }
 }
\ No newline at end of file
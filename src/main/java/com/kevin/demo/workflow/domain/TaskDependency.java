@@ -0,0 +1,47 @@
+package com.kevin.demo.workflow.domain;
+
+import com.kevin.demo.workflow.repository.PooledIdListener;
+
+import jakarta.persistence.*;
+
+/**
+ * Edge of the task graph: {@code taskId} is queued only after {@code dependsOnTaskId}
+ * has completed. Edges are only added when the dependent task is created and must
+ * point at existing tasks, so the graph cannot contain a cycle.
+ */
+@Entity
+@EntityListeners(PooledIdListener.class)
+@Table(
+    name = "task_dependencies",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_task_dependencies_edge", columnNames = {"depends_on_task_id", "task_id"})
+    },
+    indexes = {
+        @Index(name = "idx_task_dependencies_task_id", columnList = "task_id")
+    }
+)
+public class TaskDependency {
+
+    // assigned from id blocks before insert (see PooledIdListener)
+    @Id
+    private Long id;
+
+    // plain ids: completing a parent only needs the child ids, never the entities
+    @Column(name = "task_id", nullable = false)
+    private Long taskId;
+
+    @Column(name = "depends_on_task_id", nullable = false)
+    private Long dependsOnTaskId;
+
+    public TaskDependency() {}
+
+    public TaskDependency(Long taskId, Long dependsOnTaskId) {
+        this.taskId = taskId;
+        this.dependsOnTaskId = dependsOnTaskId;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getTaskId() { return taskId; }
+    public Long getDependsOnTaskId() { return dependsOnTaskId; }
+}
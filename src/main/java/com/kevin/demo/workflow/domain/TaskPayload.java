@@ -0,0 +1,90 @@
+package com.kevin.demo.workflow.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.*;
+
+/**
+ * Payload (input) or result (output) body of a task. Kept in its own table and only
+ * loaded when a body is read, so task scans never carry it.
+ *
+ * The body is either held in {@code data}, compressed or not (see {@link Encoding}),
+ * or offloaded to the blob store under {@code blobKey} when it is too large for a row.
+ */
+@Entity
+@IdClass(TaskPayload.Key.class)
+@Table(name = "task_payloads")
+public class TaskPayload {
+
+    public enum Kind { PAYLOAD, RESULT }
+
+    public enum Encoding { IDENTITY, ZSTD }
+
+    public record Key(Long taskId, Kind kind) implements Serializable {}
+
+    @Id
+    @Column(name = "task_id")
+    private Long taskId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(length = 16)
+    private Kind kind;
+
+    @Column(nullable = false, length = 128)
+    private String contentType;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 16)
+    private Encoding encoding;
+
+    // bytes as uploaded
+    @Column(nullable = false)
+    private long size;
+
+    // bytes in data or in the blob
+    @Column(nullable = false)
+    private long storedSize;
+
+    // null when offloaded
+    @Lob
+    @Column(columnDefinition = "longblob")
+    private byte[] data;
+
+    @Column(length = 255)
+    private String blobKey;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    public TaskPayload() {}
+
+    public TaskPayload(Long taskId, Kind kind, String contentType, Encoding encoding,
+                       long size, long storedSize, byte[] data, String blobKey) {
+        this.taskId = taskId;
+        this.kind = kind;
+        this.contentType = contentType;
+        this.encoding = encoding;
+        this.size = size;
+        this.storedSize = storedSize;
+        this.data = data;
+        this.blobKey = blobKey;
+        this.updatedAt = Instant.now();
+    }
+
+    public Long getTaskId() { return taskId; }
+    public Kind getKind() { return kind; }
+    public String getContentType() { return contentType; }
+    public Encoding getEncoding() { return encoding; }
+    public long getSize() { return size; }
+    public long getStoredSize() { return storedSize; }
+    public byte[] getData() { return data; }
+    public String getBlobKey() { return blobKey; }
+    public Instant getUpdatedAt() { return updatedAt; }
+}
@@ -1,9 +1,14 @@
 package com.kevin.demo.workflow.domain;
 
 public enum TaskState {
+    // also where a task with dependencies waits until its last parent completes
     CREATED,
+    // waiting for runAt; promoted to QUEUED by the timer wheel
+    SCHEDULED,
     QUEUED,
     PROCESSING,
     FAILED,
-    COMPLETED           
+    COMPLETED,
+    // terminal: failed with no attempts left, never picked up by the retry scan
+    DEAD_LETTER
 }
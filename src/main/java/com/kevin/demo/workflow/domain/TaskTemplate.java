@@ -0,0 +1,157 @@
+package com.kevin.demo.workflow.domain;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+
+/**
+ * Recurring task definition. Each occurrence of the cron expression becomes a
+ * SCHEDULED task with runAt set to the occurrence, created up to the timer horizon
+ * ahead; nextRunAt is the first occurrence not created yet.
+ */
+@Entity
+@Table(
+    name = "task_templates",
+    indexes = {
+        @Index(name = "idx_task_templates_enabled_next_run_at", columnList = "enabled, next_run_at")
+    }
+)
+public class TaskTemplate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Version
+    private Long version;
+
+    @Column(nullable = false, unique = true, length = 128)
+    private String name;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    @Column(name = "queue_name", nullable = false, length = 64)
+    private String queue = Task.DEFAULT_QUEUE;
+
+    @Column(nullable = false)
+    private int priority = 0;
+
+    // Spring cron syntax: second minute hour day-of-month month day-of-week
+    @Column(nullable = false, length = 128)
+    private String cronExpression;
+
+    @Column(nullable = false, length = 64)
+    private String zoneId = "UTC";
+
+    // false once the expression has no further occurrences
+    @Column(nullable = false)
+    private boolean enabled = true;
+
+    @Column(nullable = false)
+    private Instant nextRunAt;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    public TaskTemplate() {}
+
+    public TaskTemplate(String name, String title, String cronExpression) {
+        this.name = name;
+        this.title = title;
+        this.cronExpression = cronExpression;
+    }
+
+    @PrePersist
+    void prePersist() {
+        Instant now = Instant.now();
+        this.createdAt = now;
+        this.updatedAt = now;
+    }
+
+    @PreUpdate
+    void preUpdate() {
+        this.updatedAt = Instant.now();
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getQueue() {
+        return queue;
+    }
+    public void setQueue(String queue) {
+        this.queue = queue;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public String getCronExpression() {
+        return cronExpression;
+    }
+    public void setCronExpression(String cronExpression) {
+        this.cronExpression = cronExpression;
+    }
+
+    public String getZoneId() {
+        return zoneId;
+    }
+    public void setZoneId(String zoneId) {
+        this.zoneId = zoneId;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Instant getNextRunAt() {
+        return nextRunAt;
+    }
+    public void setNextRunAt(Instant nextRunAt) {
+        this.nextRunAt = nextRunAt;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -2,14 +2,24 @@ package com.kevin.demo.workflow.domain;
 
 import jakarta.persistence.*;
 import java.time.Instant;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kevin.demo.workflow.repository.PooledIdListener;
 
 @Entity
-@Table(name = "task_transitions")
+@EntityListeners(PooledIdListener.class)
+@Table(
+    name = "task_transitions",
+    indexes = {
+        @Index(name = "idx_task_transitions_task_id_created_at", columnList = "task_id, created_at"),
+        @Index(name = "idx_task_transitions_created_at", columnList = "created_at")
+    }
+)
 public class TaskTransition {
 
+    // assigned from id blocks before insert (see PooledIdListener)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
@@ -18,11 +28,13 @@ public class TaskTransition {
     private Task task;
 
     @Enumerated(EnumType.STRING)
-    @Column(name = "from_state", nullable = true)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(name = "from_state", nullable = true, length = 32)
     private TaskState fromState;
 
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 32)
     private TaskState toState;
 
     @Column(nullable = false)
@@ -48,14 +60,19 @@ public class TaskTransition {
         this.toState = toState;
         this.event = event;
         this.message = message;
+        // stamped when the transition happens, not when the history writer inserts it
+        this.createdAt = Instant.now();
     }
 
     @PrePersist
     void prePersist() {
-        this.createdAt = Instant.now();
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
     }
 
     public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
     public Task getTask() { return task; }
     public TaskState getFromState() { return fromState; }
     public TaskState getToState() { return toState; }
@@ -0,0 +1,77 @@
+package com.kevin.demo.workflow.domain;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import com.kevin.demo.workflow.repository.PooledIdListener;
+
+import jakarta.persistence.*;
+
+/**
+ * A transition waiting in the outbox for the history writer (see
+ * {@code TransitionHistoryWriter}). Written in the transaction that made the change,
+ * so a committed transition is never lost; the writer later moves it to
+ * {@code task_transitions} under the same id.
+ */
+@Entity
+@EntityListeners(PooledIdListener.class)
+@Table(name = "task_transition_outbox")
+public class TaskTransitionOutbox {
+
+    // assigned from the task_transitions id blocks before insert (see PooledIdListener)
+    @Id
+    private Long id;
+
+    // no association: the outbox has no foreign key to tasks
+    @Column(name = "task_id", nullable = false)
+    private Long taskId;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(name = "from_state", length = 32)
+    private TaskState fromState;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 32)
+    private TaskState toState;
+
+    @Column(nullable = false)
+    private String event;
+
+    @Column(columnDefinition = "TEXT")
+    private String message;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    // set when the row could not be moved; the writer skips it from then on
+    private Instant failedAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    protected TaskTransitionOutbox() {}
+
+    public TaskTransitionOutbox(TaskTransition transition) {
+        this.taskId = transition.getTask().getId();
+        this.fromState = transition.getFromState();
+        this.toState = transition.getToState();
+        this.event = transition.getEvent();
+        this.message = transition.getMessage();
+        this.createdAt = transition.getCreatedAt();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getTaskId() { return taskId; }
+    public TaskState getFromState() { return fromState; }
+    public TaskState getToState() { return toState; }
+    public String getEvent() { return event; }
+    public String getMessage() { return message; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getFailedAt() { return failedAt; }
+    public String getLastError() { return lastError; }
+}
@@ -0,0 +1,47 @@
+package com.kevin.demo.workflow.domain;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// token bucket of one rate-limited task type; only read and written under a row lock
+@Entity
+@Table(name = "task_type_limits")
+public class TaskTypeLimit {
+
+    @Id
+    @Column(name = "task_type", length = 64)
+    private String taskType;
+
+    @Column(nullable = false)
+    private double tokens;
+
+    @Column(nullable = false)
+    private Instant refilledAt;
+
+    protected TaskTypeLimit() {}
+
+    // adds what `rate` tokens per second earned since the last refill, up to `burst`
+    public void refill(double rate, int burst, Instant now) {
+        if (now.isAfter(refilledAt)) {
+            double elapsedSeconds = (now.toEpochMilli() - refilledAt.toEpochMilli()) / 1000.0;
+            tokens = Math.min(burst, tokens + elapsedSeconds * rate);
+            refilledAt = now;
+        }
+    }
+
+    public void take(int count) {
+        tokens -= count;
+    }
+
+    public void giveBack(int count) {
+        tokens += count;
+    }
+
+    public String getTaskType() { return taskType; }
+    public double getTokens() { return tokens; }
+    public Instant getRefilledAt() { return refilledAt; }
+}
@@ -0,0 +1,144 @@
+package com.kevin.demo.workflow.metrics;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.kevin.demo.workflow.domain.TaskState;
+import com.kevin.demo.workflow.repository.TaskRepository;
+import com.kevin.demo.workflow.repository.TaskStateCount;
+import com.kevin.demo.workflow.service.TaskTransitionEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Task lifecycle and scheduler metrics, exported through Actuator
+ * ({@code /actuator/prometheus}).
+ *
+ * <ul>
+ *   <li>{@code workflow.tasks.depth{state}} rows per non-terminal state, refreshed every 15s</li>
+ *   <li>{@code workflow.task.transitions{event,to_state}} committed transitions</li>
+ *   <li>{@code workflow.task.time_in_state{state}} time spent in a state before leaving it</li>
+ *   <li>{@code workflow.claim.attempts{outcome}} claimed vs. lost claim attempts, and
+ *       single-task claims refused by an open circuit ({@code circuit_open})</li>
+ *   <li>{@code workflow.poll.duration{loop}} duration of each scheduler loop run</li>
+ * </ul>
+ */
+@Component
+public class WorkflowMetrics {
+
+    // terminal states only grow; counting them would scan most of the table,
+    // their volume is covered by the transition counters instead
+    static final Set<TaskState> DEPTH_STATES = EnumSet.of(
+            TaskState.CREATED,
+            TaskState.SCHEDULED,
+            TaskState.QUEUED,
+            TaskState.PROCESSING,
+            TaskState.FAILED
+    );
+
+    private final MeterRegistry registry;
+    private final TaskRepository taskRepository;
+
+    private final Map<TaskState, AtomicLong> depth = new EnumMap<>(TaskState.class);
+    private final Counter claimed;
+    private final Counter claimLost;
+    private final Counter claimCircuitOpen;
+
+    public WorkflowMetrics(MeterRegistry registry, TaskRepository taskRepository) {
+        this.registry = registry;
+        this.taskRepository = taskRepository;
+
+        for (TaskState state : DEPTH_STATES) {
+            AtomicLong value = new AtomicLong();
+            depth.put(state, value);
+            Gauge.builder("workflow.tasks.depth", value, AtomicLong::get)
+                    .description("Tasks currently in the state")
+                    .tag("state", state.name())
+                    .register(registry);
+        }
+
+        this.claimed = claimAttempts("claimed");
+        this.claimLost = claimAttempts("lost");
+        this.claimCircuitOpen = claimAttempts("circuit_open");
+    }
+
+    @Scheduled(fixedDelay = 15_000)
+    public void refreshQueueDepth() {
+        Map<TaskState, Long> counts = new EnumMap<>(TaskState.class);
+        for (TaskStateCount count : taskRepository.countByStateIn(DEPTH_STATES)) {
+            counts.put(count.getState(), count.getCount());
+        }
+
+        depth.forEach((state, value) -> value.set(counts.getOrDefault(state, 0L)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TaskTransitionEvent event) {
+        Counter.builder("workflow.task.transitions")
+                .tag("event", event.event())
+                .tag("to_state", event.toState().name())
+                .register(registry)
+                .increment();
+
+        if (event.fromState() != null
+                && event.stateEnteredAt() != null
+                && event.occurredAt() != null) {
+            Timer.builder("workflow.task.time_in_state")
+                    .description("Time a task spent in the state before the transition")
+                    .tag("state", event.fromState().name())
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(Duration.between(event.stateEnteredAt(), event.occurredAt()));
+        }
+    }
+
+    // claims are counted once the claiming transaction commits, so a rolled back
+    // batch is not reported; lost attempts happened either way
+    public void recordClaims(int claimedCount, int lostCount) {
+        claimLost.increment(lostCount);
+        if (claimedCount == 0) return;
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            claimed.increment(claimedCount);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                claimed.increment(claimedCount);
+            }
+        });
+    }
+
+    // the task's type circuit was open or out of probes; the row was not tried
+    public void recordCircuitOpenClaim() {
+        claimCircuitOpen.increment();
+    }
+
+    public Timer pollTimer(String loop) {
+        return Timer.builder("workflow.poll.duration")
+                .description("Duration of one scheduler loop run")
+                .tag("loop", loop)
+                .register(registry);
+    }
+
+    private Counter claimAttempts(String outcome) {
+        return Counter.builder("workflow.claim.attempts")
+                .description("Claim attempts by outcome; lost means another worker won the row, circuit_open that the task type's circuit refused it")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -0,0 +1,115 @@
+package com.kevin.demo.workflow.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Hands out entity ids from blocks reserved in the {@code id_generators} table,
+ * so inserts don't need an IDENTITY round trip and can be JDBC-batched.
+ *
+ * Blocks are reserved over a dedicated two-connection pool rather than the
+ * application pool: ids are requested while the caller's transaction already
+ * holds a pooled connection, and with every application connection held by such
+ * callers a reservation on the same pool could never get one (Hibernate's table
+ * generator deadlocks this way under worker load).
+ */
+@Component
+public class IdBlockAllocator implements DisposableBean {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(IdBlockAllocator.class);
+
+    static final int BLOCK_SIZE = 50;
+
+    private final HikariDataSource dataSource;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public IdBlockAllocator(DataSourceProperties properties) {
+        this.dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        this.dataSource.setPoolName("id-allocator");
+        this.dataSource.setMaximumPoolSize(2);
+        this.dataSource.setMinimumIdle(0);
+    }
+
+    public long next(String name) {
+        return blocks.computeIfAbsent(name, Block::new).next();
+    }
+
+    // reserves [first, first + BLOCK_SIZE) and returns first;
+    // next_val is the first id of the next unreserved block
+    private long reserve(String name) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                long first = reserve(connection, name);
+                connection.commit();
+
+                log.debug("id_block_reserved name={} first={} size={}", name, first, BLOCK_SIZE);
+                return first;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not reserve id block: " + name, e);
+        }
+    }
+
+    private static long reserve(Connection connection, String name) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(
+                "update id_generators set next_val = next_val + ? where name = ?")) {
+            update.setInt(1, BLOCK_SIZE);
+            update.setString(2, name);
+            if (update.executeUpdate() != 1) {
+                throw new IllegalStateException("No id_generators row: " + name);
+            }
+        }
+
+        try (PreparedStatement select = connection.prepareStatement(
+                "select next_val from id_generators where name = ?")) {
+            select.setString(1, name);
+            try (ResultSet rs = select.executeQuery()) {
+                rs.next();
+                return rs.getLong(1) - BLOCK_SIZE;
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        dataSource.close();
+    }
+
+    private final class Block {
+
+        private final String name;
+        private long next;
+        private long end;
+
+        Block(String name) {
+            this.name = name;
+        }
+
+        synchronized long next() {
+            if (next == end) {
+                next = reserve(name);
+                end = next + BLOCK_SIZE;
+            }
+            return next++;
+        }
+    }
+}
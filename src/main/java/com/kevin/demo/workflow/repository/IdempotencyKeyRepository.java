@@ -0,0 +1,25 @@
+package com.kevin.demo.workflow.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.kevin.demo.workflow.domain.IdempotencyKey;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+
+    Optional<IdempotencyKey> findByScopeAndKey(String scope, String key);
+
+    // bounded so a large backlog is removed in short transactions
+    @Modifying
+    @Query(value = """
+    delete from idempotency_keys
+    where created_at < :cutoff
+    limit :limit
+    """, nativeQuery = true)
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+}
@@ -0,0 +1,8 @@
+package com.kevin.demo.workflow.repository;
+
+public interface OutboxRef {
+
+    Long getId();
+
+    Long getTaskId();
+}
@@ -0,0 +1,38 @@
+package com.kevin.demo.workflow.repository;
+
+import com.kevin.demo.workflow.domain.IdempotencyKey;
+import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.domain.TaskDependency;
+import com.kevin.demo.workflow.domain.TaskTransition;
+import com.kevin.demo.workflow.domain.TaskTransitionOutbox;
+
+import jakarta.persistence.PrePersist;
+
+/**
+ * Assigns ids from {@link IdBlockAllocator} before insert. Instantiated by
+ * Hibernate through Spring's bean container, so the allocator is injected.
+ */
+public class PooledIdListener {
+
+    private final IdBlockAllocator allocator;
+
+    public PooledIdListener(IdBlockAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    @PrePersist
+    void assignId(Object entity) {
+        if (entity instanceof Task task && task.getId() == null) {
+            task.setId(allocator.next("tasks"));
+        } else if (entity instanceof TaskTransition transition && transition.getId() == null) {
+            transition.setId(allocator.next("task_transitions"));
+        } else if (entity instanceof TaskTransitionOutbox entry && entry.getId() == null) {
+            // the id the transition keeps once moved to task_transitions
+            entry.setId(allocator.next("task_transitions"));
+        } else if (entity instanceof TaskDependency dependency && dependency.getId() == null) {
+            dependency.setId(allocator.next("task_dependencies"));
+        } else if (entity instanceof IdempotencyKey key && key.getId() == null) {
+            key.setId(allocator.next("idempotency_keys"));
+        }
+    }
+}
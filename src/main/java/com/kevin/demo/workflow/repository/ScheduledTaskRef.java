@@ -0,0 +1,10 @@
+package com.kevin.demo.workflow.repository;
+
+import java.time.Instant;
+
+public interface ScheduledTaskRef {
+
+    Long getId();
+
+    Instant getRunAt();
+}
@@ -0,0 +1,23 @@
+package com.kevin.demo.workflow.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.kevin.demo.workflow.domain.SchedulerNode;
+
+public interface SchedulerNodeRepository extends JpaRepository<SchedulerNode, String> {
+
+    @Modifying
+    @Query("update SchedulerNode n set n.heartbeatAt = :now where n.nodeId = :nodeId")
+    int touch(@Param("nodeId") String nodeId, @Param("now") Instant now);
+
+    long countByHeartbeatAtAfter(Instant since);
+
+    @Modifying
+    @Query("delete from SchedulerNode n where n.heartbeatAt < :before")
+    int deleteStale(@Param("before") Instant before);
+}
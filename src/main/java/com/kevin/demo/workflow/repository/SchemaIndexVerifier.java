@@ -0,0 +1,134 @@
+package com.kevin.demo.workflow.repository;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fails startup when an index the scheduler and history queries rely on is missing.
+ *
+ * Runs after all singletons (including Flyway) are initialized and before the
+ * pollers start. An index matches when its leading columns equal the expected
+ * columns, whatever it is named.
+ */
+@Component
+@ConditionalOnProperty(name = "workflow.schema.verify-indexes", havingValue = "true", matchIfMissing = true)
+public class SchemaIndexVerifier implements SmartInitializingSingleton {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(SchemaIndexVerifier.class);
+
+    // table -> expected leading index columns
+    static final Map<String, List<List<String>>> EXPECTED_INDEXES = Map.of(
+            "tasks", List.of(
+                    List.of("state", "updated_at"),
+                    List.of("state", "next_attempt_at", "shard"),
+                    List.of("updated_at"),
+                    List.of("state", "lease_expires_at", "shard"),
+                    List.of("state", "queue_name", "priority", "updated_at"),
+                    List.of("state", "run_at"),
+                    List.of("state", "task_type")
+            ),
+            "task_dependencies", List.of(
+                    List.of("depends_on_task_id", "task_id"),
+                    List.of("task_id")
+            ),
+            "idempotency_keys", List.of(
+                    List.of("scope", "idem_key"),
+                    List.of("created_at")
+            ),
+            "task_templates", List.of(
+                    List.of("enabled", "next_run_at")
+            ),
+            "tasks_archive", List.of(
+                    List.of("archived_at")
+            ),
+            "task_transitions_archive", List.of(
+                    List.of("task_id", "created_at"),
+                    List.of("archived_at")
+            ),
+            "task_transitions", List.of(
+                    List.of("task_id", "created_at"),
+                    List.of("created_at")
+            )
+    );
+
+    private final DataSource dataSource;
+
+    public SchemaIndexVerifier(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<String> missing = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+
+            for (Map.Entry<String, List<List<String>>> entry : EXPECTED_INDEXES.entrySet()) {
+                List<List<String>> actual = indexColumns(metaData, connection, entry.getKey());
+
+                for (List<String> expected : entry.getValue()) {
+                    if (actual.stream().noneMatch(columns -> startsWith(columns, expected))) {
+                        missing.add(entry.getKey() + expected);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read index metadata", e);
+        }
+
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException(
+                    "Missing required indexes: " + missing + " (run the Flyway migrations)"
+            );
+        }
+
+        log.info("schema_indexes_verified tables={}", EXPECTED_INDEXES.keySet());
+    }
+
+    private static List<List<String>> indexColumns(
+            DatabaseMetaData metaData,
+            Connection connection,
+            String table
+    ) throws SQLException {
+        // index name -> (ordinal position -> column)
+        Map<String, TreeMap<Short, String>> indexes = new TreeMap<>();
+
+        try (ResultSet rs = metaData.getIndexInfo(
+                connection.getCatalog(), connection.getSchema(), table, false, true)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (indexName == null || column == null) continue;
+
+                indexes.computeIfAbsent(indexName, k -> new TreeMap<>())
+                        .put(rs.getShort("ORDINAL_POSITION"), column.toLowerCase(Locale.ROOT));
+            }
+        }
+
+        return indexes.values().stream()
+                .map(columns -> List.copyOf(columns.values()))
+                .toList();
+    }
+
+    private static boolean startsWith(List<String> columns, List<String> prefix) {
+        return columns.size() >= prefix.size()
+                && columns.subList(0, prefix.size()).equals(prefix);
+    }
+}
@@ -0,0 +1,59 @@
+package com.kevin.demo.workflow.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.kevin.demo.workflow.domain.ShardLease;
+
+public interface ShardLeaseRepository extends JpaRepository<ShardLease, Integer> {
+
+    @Query("select s.shard from ShardLease s where s.owner = :owner order by s.shard")
+    List<Integer> findOwned(@Param("owner") String owner);
+
+    @Modifying
+    @Query("update ShardLease s set s.expiresAt = :expiresAt where s.owner = :owner")
+    int renew(@Param("owner") String owner, @Param("expiresAt") Instant expiresAt);
+
+    // unowned or expired shards; nodes rebalancing at the same time get disjoint sets
+    @Query(value = """
+    select shard from shard_leases
+    where owner is null or expires_at < :now
+    order by shard
+    limit :limit
+    for update skip locked
+    """, nativeQuery = true)
+    List<Integer> lockFree(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("""
+    update ShardLease s
+    set s.owner = :owner,
+        s.expiresAt = :expiresAt
+    where s.shard in :shards
+    """)
+    int assign(
+        @Param("shards") Collection<Integer> shards,
+        @Param("owner") String owner,
+        @Param("expiresAt") Instant expiresAt
+    );
+
+    @Modifying
+    @Query("""
+    update ShardLease s
+    set s.owner = null,
+        s.expiresAt = null
+    where s.owner = :owner
+    and s.shard in :shards
+    """)
+    int release(@Param("owner") String owner, @Param("shards") Collection<Integer> shards);
+
+    @Modifying
+    @Query("update ShardLease s set s.owner = null, s.expiresAt = null where s.owner = :owner")
+    int releaseAll(@Param("owner") String owner);
+}
@@ -0,0 +1,39 @@
+package com.kevin.demo.workflow.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.kevin.demo.workflow.domain.TaskDependency;
+
+import jakarta.persistence.LockModeType;
+
+public interface TaskDependencyRepository extends JpaRepository<TaskDependency, Long> {
+
+    // locking read, so edges committed after this transaction's snapshot are seen too
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select d from TaskDependency d where d.dependsOnTaskId = :taskId")
+    List<TaskDependency> lockDependents(@Param("taskId") Long taskId);
+
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select d from TaskDependency d where d.dependsOnTaskId in :taskIds")
+    List<TaskDependency> lockDependentsOf(@Param("taskIds") Collection<Long> taskIds);
+
+    // edges of archived tasks; a terminal task's parents have all completed and its
+    // children have already been released, or dead-lettered along with it
+    @Modifying
+    @Query(value = """
+    delete from task_dependencies
+    where task_id in (:taskIds)
+    or depends_on_task_id in (:taskIds)
+    """, nativeQuery = true)
+    int deleteByTaskIds(@Param("taskIds") Collection<Long> taskIds);
+
+    @Query("select d.dependsOnTaskId from TaskDependency d where d.taskId = :taskId order by d.dependsOnTaskId")
+    List<Long> findDependsOnIds(@Param("taskId") Long taskId);
+}
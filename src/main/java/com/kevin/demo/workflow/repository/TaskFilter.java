@@ -0,0 +1,20 @@
+package com.kevin.demo.workflow.repository;
+
+import java.time.Instant;
+
+import com.kevin.demo.workflow.domain.TaskState;
+
+/**
+ * Optional task list filters; null means unrestricted. Ranges include the lower
+ * bound and exclude the upper one.
+ */
+public record TaskFilter(
+        TaskState state,
+        String queue,
+        Instant createdFrom,
+        Instant createdTo,
+        Instant updatedFrom,
+        Instant updatedTo,
+        Integer minAttempts,
+        Integer maxAttempts
+) {}
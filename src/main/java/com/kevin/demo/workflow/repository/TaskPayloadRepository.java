@@ -0,0 +1,34 @@
+package com.kevin.demo.workflow.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.kevin.demo.workflow.domain.TaskPayload;
+
+public interface TaskPayloadRepository extends JpaRepository<TaskPayload, TaskPayload.Key> {
+
+    // an empty Optional when there is no row or the body is held in the row
+    @Query("select p.blobKey from TaskPayload p where p.taskId = :taskId and p.kind = :kind")
+    Optional<String> findBlobKey(@Param("taskId") Long taskId, @Param("kind") TaskPayload.Kind kind);
+
+    @Modifying
+    @Query("delete from TaskPayload p where p.taskId = :taskId and p.kind = :kind")
+    int deleteByKey(@Param("taskId") Long taskId, @Param("kind") TaskPayload.Kind kind);
+
+    @Query(value = """
+    select blob_key from task_payloads
+    where task_id in (:taskIds)
+    and blob_key is not null
+    """, nativeQuery = true)
+    List<String> findBlobKeys(@Param("taskIds") Collection<Long> taskIds);
+
+    @Modifying
+    @Query(value = "delete from task_payloads where task_id in (:taskIds)", nativeQuery = true)
+    int deleteByTaskIds(@Param("taskIds") Collection<Long> taskIds);
+}
@@ -1,7 +1,11 @@
 package com.kevin.demo.workflow.repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,41 +13,396 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import com.kevin.demo.workflow.domain.Task;
 import com.kevin.demo.workflow.domain.TaskState;
 
-public interface TaskRepository extends JpaRepository<Task, Long>{
-    
-    // Used by TaskScheduler to find work
-    List<Task> findTop50ByStateOrderByUpdatedAtAsc(TaskState state);
+import jakarta.persistence.LockModeType;
 
+public interface TaskRepository extends JpaRepository<Task, Long>, TaskSearchRepository {
+
+    // The shard scans below derive a task's shard from its id (mod Task.SHARDS)
+    // rather than reading the shard column: rows inserted by nodes still on a version
+    // without the column (a rolling deploy) get its default 0, and would all be left
+    // to the owner of shard 0. InnoDB keeps the primary key in every secondary index,
+    // so the filter is still evaluated inside the index.
+
+    // FAILED tasks of the given shards whose retry time has come, oldest due first
+    @Query("""
+    select t from Task t
+    where t.state = com.kevin.demo.workflow.domain.TaskState.FAILED
+    and t.nextAttemptAt <= :now
+    and mod(t.id, 64) in :shards
+    order by t.nextAttemptAt asc
+    """)
+    List<Task> findDueForRetry(
+        @Param("shards") Collection<Integer> shards, @Param("now") Instant now, Limit limit);
+
+    // earliest retry time among the FAILED tasks of the given shards; walks
+    // idx_tasks_state_next_attempt_at in order and stops at the first match
+    @Query("""
+    select t.nextAttemptAt
+    from Task t
+    where t.state = com.kevin.demo.workflow.domain.TaskState.FAILED
+    and mod(t.id, 64) in :shards
+    order by t.nextAttemptAt asc
+    """)
+    List<Instant> findNextAttemptAt(@Param("shards") Collection<Integer> shards, Limit limit);
+
+    // tasks changed after :since, oldest first; tails idx_tasks_updated_at for TaskStatusBroadcaster
+    @Query("""
+    select t.id as id, t.queue as queue, t.state as state, t.updatedAt as updatedAt
+    from Task t
+    where t.updatedAt > :since
+    order by t.updatedAt asc
+    """)
+    List<TaskStatusRef> findChangedSince(@Param("since") Instant since, Limit limit);
+
+    // per-state counts for the given states; used for queue depth gauges
+    @Query("""
+    select t.state as state, count(t) as count
+    from Task t
+    where t.state in :states
+    group by t.state
+    """)
+    List<TaskStateCount> countByStateIn(@Param("states") Collection<TaskState> states);
+
+    // SCHEDULED tasks due by :until, soonest first; loads the timer wheel
+    @Query("""
+    select t.id as id, t.runAt as runAt
+    from Task t
+    where t.state = com.kevin.demo.workflow.domain.TaskState.SCHEDULED
+    and t.runAt <= :until
+    order by t.runAt asc
+    """)
+    List<ScheduledTaskRef> findScheduledUntil(@Param("until") Instant until, Limit limit);
+
+    // locks the given SCHEDULED tasks that are due; rows another node is releasing are skipped
+    @Query(value = """
+    select * from tasks
+    where id in (:ids)
+    and state = 'SCHEDULED'
+    and run_at <= :now
+    for update skip locked
+    """, nativeQuery = true)
+    List<Task> lockDueScheduled(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    // queues with QUEUED work; a loose scan over idx_tasks_state_queue_priority
+    @Query(value = """
+    select distinct queue_name from tasks
+    where state = 'QUEUED'
+    """, nativeQuery = true)
+    List<String> findQueuedQueueNames();
+
+    // task types with QUEUED work; a loose scan over idx_tasks_state_task_type
+    @Query(value = """
+    select distinct task_type from tasks
+    where state = 'QUEUED'
+    """, nativeQuery = true)
+    List<String> findQueuedTaskTypes();
+
+    // in-flight tasks of the given types, one row each, for the types' max-in-flight
+    // caps; a locking read, so it sees claims committed after the transaction's snapshot
+    // and holds off other claims of the types until commit
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("""
+    select t.taskType
+    from Task t
+    where t.state = com.kevin.demo.workflow.domain.TaskState.PROCESSING
+    and t.taskType in :types
+    """)
+    List<String> lockProcessingTaskTypes(@Param("types") Collection<String> types);
+
+    @Query("select t.taskType from Task t where t.id = :id")
+    String findTaskType(@Param("id") Long id);
+
+    // Locks up to :limit QUEUED rows of one queue, highest priority then oldest first,
+    // for the current transaction; rows locked by another node's claim are skipped,
+    // so concurrent claimers get disjoint batches. Types over their claim limit are
+    // passed in :excludedTypes (never empty: "" when none, which no task type matches).
+    @Query(value = """
+    select * from tasks
+    where state = 'QUEUED'
+    and queue_name = :queue
+    and task_type not in (:excludedTypes)
+    order by priority desc, updated_at asc
+    limit :limit
+    for update skip locked
+    """, nativeQuery = true)
+    List<Task> lockNextQueued(
+        @Param("queue") String queue,
+        @Param("excludedTypes") Collection<String> excludedTypes,
+        @Param("limit") int limit
+    );
+
+    // Guarded single-statement transitions: each only matches while the task is in
+    // the expected state, so a lost race updates 0 rows instead of failing an
+    // optimistic lock. version is still bumped for writers that go through the entity.
+    // previousStateEnteredAt is assigned before stateEnteredAt, so it takes the old
+    // value whether the database evaluates SET left to right (MySQL) or not.
+
+    // queued -> processing for a single task, leased to :owner
     @Modifying
     @Query("""
     update Task t
-    set t.state = :toState,
-        t.updatedAt = CURRENT_TIMESTAMP,
-        t.lastError = null
+    set t.state = com.kevin.demo.workflow.domain.TaskState.PROCESSING,
+        t.previousStateEnteredAt = t.stateEnteredAt,
+        t.stateEnteredAt = :now,
+        t.updatedAt = :now,
+        t.lastError = null,
+        t.leaseOwner = :owner,
+        t.leaseExpiresAt = :leaseExpiresAt,
+        t.version = t.version + 1
     where t.id = :id
-    and t.state = :fromState
+    and t.state = com.kevin.demo.workflow.domain.TaskState.QUEUED
     """)
-    int transitionStateIfCurrent(
+    int claimIfQueued(
         @Param("id") Long id,
-        @Param("fromState") TaskState fromState,
-        @Param("toState") TaskState toState
+        @Param("owner") String owner,
+        @Param("leaseExpiresAt") Instant leaseExpiresAt,
+        @Param("now") Instant now
     );
-    
+
+    // created -> queued, unless dependencies are pending
+    @Modifying
+    @Query("""
+    update Task t
+    set t.state = com.kevin.demo.workflow.domain.TaskState.QUEUED,
+        t.previousStateEnteredAt = t.stateEnteredAt,
+        t.stateEnteredAt = :now,
+        t.updatedAt = :now,
+        t.version = t.version + 1
+    where t.id = :id
+    and t.state = com.kevin.demo.workflow.domain.TaskState.CREATED
+    and t.pendingDependencies = 0
+    """)
+    int submitIfCreated(@Param("id") Long id, @Param("now") Instant now);
+
+    // processing -> completed; a null :owner skips the lease check
     @Modifying
     @Query("""
     update Task t
-    set t.state = :toState,
-        t.updatedAt = CURRENT_TIMESTAMP,
-        t.lastError = :error
+    set t.state = com.kevin.demo.workflow.domain.TaskState.COMPLETED,
+        t.previousStateEnteredAt = t.stateEnteredAt,
+        t.stateEnteredAt = :now,
+        t.updatedAt = :now,
+        t.leaseOwner = null,
+        t.leaseExpiresAt = null,
+        t.version = t.version + 1
     where t.id = :id
-    and t.state = :fromState
-    and t.updatedAt < :cutoff
+    and t.state = com.kevin.demo.workflow.domain.TaskState.PROCESSING
+    and (:owner is null or t.leaseOwner = :owner)
     """)
-    int transitionStateIfCurrentAndStale(
+    int completeIfProcessing(@Param("id") Long id, @Param("owner") String owner, @Param("now") Instant now);
+
+    // processing -> failed with the next attempt due at nextAttemptAt, or dead_letter
+    // (nextAttemptAt null). The backoff is computed by the caller from the row it read;
+    // the version check makes sure nothing changed it since
+    @Modifying
+    @Query("""
+    update Task t
+    set t.state = :state,
+        t.previousStateEnteredAt = t.stateEnteredAt,
+        t.stateEnteredAt = :now,
+        t.nextAttemptAt = :nextAttemptAt,
+        t.retryDelayMillis = :retryDelayMillis,
+        t.lastError = :error,
+        t.updatedAt = :now,
+        t.leaseOwner = null,
+        t.leaseExpiresAt = null,
+        t.attemptCount = t.attemptCount + 1,
+        t.version = t.version + 1
+    where t.id = :id
+    and t.version = :version
+    and t.state = com.kevin.demo.workflow.domain.TaskState.PROCESSING
+    and (:owner is null or t.leaseOwner = :owner)
+    """)
+    int failIfProcessing(
         @Param("id") Long id,
-        @Param("fromState") TaskState fromState,
-        @Param("toState") TaskState toState,
+        @Param("version") Long version,
+        @Param("owner") String owner,
+        @Param("state") TaskState state,
+        @Param("nextAttemptAt") Instant nextAttemptAt,
+        @Param("retryDelayMillis") Long retryDelayMillis,
+        @Param("error") String error,
+        @Param("now") Instant now
+    );
+
+    // failed -> queued while attempts are left
+    @Modifying
+    @Query("""
+    update Task t
+    set t.state = com.kevin.demo.workflow.domain.TaskState.QUEUED,
+        t.previousStateEnteredAt = t.stateEnteredAt,
+        t.stateEnteredAt = :now,
+        t.lastError = null,
+        t.nextAttemptAt = null,
+        t.updatedAt = :now,
+        t.version = t.version + 1
+    where t.id = :id
+    and t.state = com.kevin.demo.workflow.domain.TaskState.FAILED
+    and t.attemptCount < t.maxAttempts
+    """)
+    int retryIfFailed(@Param("id") Long id, @Param("now") Instant now);
+
+    // follow-up read of a guarded UPDATE (MySQL has no RETURNING)
+    @Query("""
+    select new com.kevin.demo.workflow.repository.UpdatedTask(t, t.previousStateEnteredAt)
+    from Task t
+    where t.id = :id
+    """)
+    UpdatedTask findUpdated(@Param("id") Long id);
+
+    // Archival (see TaskArchiveService). Terminal rows are rarely locked; SKIP LOCKED
+    // keeps two nodes from archiving the same batch.
+    @Query(value = """
+    select id from tasks
+    where state = :state
+    and updated_at < :cutoff
+    order by updated_at
+    limit :limit
+    for update skip locked
+    """, nativeQuery = true)
+    List<Long> lockArchivable(
+        @Param("state") String state,
         @Param("cutoff") Instant cutoff,
-        @Param("error") String error
+        @Param("limit") int limit
+    );
+
+    @Modifying
+    @Query(value = """
+    insert into tasks_archive (
+        id, version, state, title, description, priority, queue_name, task_type, attempt_count,
+        max_attempts, retry_policy, last_error, next_attempt_at, run_at, created_at, updated_at, archived_at
+    )
+    select
+        id, version, state, title, description, priority, queue_name, task_type, attempt_count,
+        max_attempts, retry_policy, last_error, next_attempt_at, run_at, created_at, updated_at, :now
+    from tasks
+    where id in (:ids)
+    """, nativeQuery = true)
+    int copyToArchive(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    @Modifying
+    @Query(value = "delete from tasks where id in (:ids)", nativeQuery = true)
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = """
+    delete from tasks_archive
+    where archived_at < :cutoff
+    limit :limit
+    """, nativeQuery = true)
+    int purgeArchive(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    // parents of a task being created that are no longer in tasks; a locking read, so
+    // an archival committed after this transaction's snapshot is seen too
+    @Query(value = """
+    select id as id, state as state
+    from tasks_archive
+    where id in (:ids)
+    for update
+    """, nativeQuery = true)
+    List<TaskStateRef> lockArchivedStates(@Param("ids") Collection<Long> ids);
+
+    // parents of a task being created; see TaskService.createTask
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select t from Task t where t.id in :ids")
+    List<Task> lockAllForShare(@Param("ids") Collection<Long> ids);
+
+    // serializes payload writes with each other and with claims of the task
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Task t where t.id = :id")
+    Optional<Task> lockById(@Param("id") Long id);
+
+    // children of a dead-lettered parent that are still waiting on it; locked, so a
+    // concurrent release of another parent cannot queue them in the meantime
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+    select t from Task t
+    where t.id in :ids
+    and t.state = com.kevin.demo.workflow.domain.TaskState.CREATED
+    order by t.id
+    """)
+    List<Task> lockWaiting(@Param("ids") Collection<Long> ids);
+
+    // one parent of each task in :ids has completed
+    @Modifying
+    @Query("""
+    update Task t
+    set t.pendingDependencies = t.pendingDependencies - 1,
+        t.version = t.version + 1
+    where t.id in :ids
+    and t.pendingDependencies > 0
+    """)
+    int decrementPendingDependencies(@Param("ids") Collection<Long> ids);
+
+    List<Task> findByIdInAndStateAndPendingDependencies(
+        Collection<Long> ids, TaskState state, int pendingDependencies);
+
+    // PROCESSING tasks of the given shards whose lease ran out, oldest expiry first
+    @Query("""
+    select t from Task t
+    where t.state = com.kevin.demo.workflow.domain.TaskState.PROCESSING
+    and t.leaseExpiresAt < :now
+    and mod(t.id, 64) in :shards
+    order by t.leaseExpiresAt asc
+    """)
+    List<Task> findExpiredLeases(
+        @Param("shards") Collection<Integer> shards, @Param("now") Instant now, Limit limit);
+
+    // processing -> failed with the next attempt due at nextAttemptAt, or dead_letter,
+    // once the lease has expired; like failIfProcessing, the backoff comes from the
+    // row the caller read. Renewals leave version alone, so the expiry is re-checked
+    @Modifying
+    @Query("""
+    update Task t
+    set t.state = :state,
+        t.previousStateEnteredAt = t.stateEnteredAt,
+        t.stateEnteredAt = :now,
+        t.nextAttemptAt = :nextAttemptAt,
+        t.retryDelayMillis = :retryDelayMillis,
+        t.lastError = :error,
+        t.updatedAt = :now,
+        t.leaseOwner = null,
+        t.leaseExpiresAt = null,
+        t.attemptCount = t.attemptCount + 1,
+        t.version = t.version + 1
+    where t.id = :id
+    and t.version = :version
+    and t.state = com.kevin.demo.workflow.domain.TaskState.PROCESSING
+    and t.leaseExpiresAt < :now
+    """)
+    int expireLeaseIfDue(
+        @Param("id") Long id,
+        @Param("version") Long version,
+        @Param("state") TaskState state,
+        @Param("nextAttemptAt") Instant nextAttemptAt,
+        @Param("retryDelayMillis") Long retryDelayMillis,
+        @Param("error") String error,
+        @Param("now") Instant now
+    );
+
+    // extends the leases :owner still holds; version is left alone so a heartbeat
+    // never makes a concurrent complete/fail fail its optimistic lock check
+    @Modifying
+    @Query("""
+    update Task t
+    set t.leaseExpiresAt = :leaseExpiresAt
+    where t.id in :ids
+    and t.state = com.kevin.demo.workflow.domain.TaskState.PROCESSING
+    and t.leaseOwner = :owner
+    """)
+    int renewLeases(
+        @Param("owner") String owner,
+        @Param("ids") Collection<Long> ids,
+        @Param("leaseExpiresAt") Instant leaseExpiresAt
+    );
+
+    @Query("""
+    select t.id from Task t
+    where t.id in :ids
+    and t.state = com.kevin.demo.workflow.domain.TaskState.PROCESSING
+    and t.leaseOwner = :owner
+    """)
+    List<Long> findLeasedIds(
+        @Param("owner") String owner,
+        @Param("ids") Collection<Long> ids
     );
 }
@@ -0,0 +1,11 @@
+package com.kevin.demo.workflow.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface TaskSearchRepository {
+
+    // newest first by (updatedAt, id); pass the last row of the previous page as
+    // afterUpdatedAt/afterId, or nulls for the first page
+    List<TaskSummary> findSummaries(TaskFilter filter, Instant afterUpdatedAt, Long afterId, int limit);
+}
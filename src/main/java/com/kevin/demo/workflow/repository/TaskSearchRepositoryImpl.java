@@ -0,0 +1,83 @@
+package com.kevin.demo.workflow.repository;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Keyset (seek) pagination over (updated_at desc, id desc): each page starts right
+ * after the previous page's last row instead of skipping an OFFSET, so deep pages
+ * cost the same as the first. The order is served by idx_tasks_updated_at, or by
+ * idx_tasks_state_updated_at when filtering on state (InnoDB secondary indexes end
+ * with the primary key); the other filters are checked on the rows walked in order.
+ */
+class TaskSearchRepositoryImpl implements TaskSearchRepository {
+
+    private final EntityManager entityManager;
+
+    TaskSearchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<TaskSummary> findSummaries(TaskFilter filter, Instant afterUpdatedAt, Long afterId, int limit) {
+        StringBuilder jpql = new StringBuilder("""
+                select new com.kevin.demo.workflow.repository.TaskSummary(
+                    t.id, t.title, t.state, t.priority, t.queue, t.attemptCount, t.maxAttempts,
+                    t.nextAttemptAt, t.createdAt, t.updatedAt)
+                from Task t
+                where 1 = 1
+                """);
+        Map<String, Object> params = new HashMap<>();
+
+        if (filter.state() != null) {
+            jpql.append(" and t.state = :state");
+            params.put("state", filter.state());
+        }
+        if (filter.queue() != null) {
+            jpql.append(" and t.queue = :queue");
+            params.put("queue", filter.queue());
+        }
+        if (filter.createdFrom() != null) {
+            jpql.append(" and t.createdAt >= :createdFrom");
+            params.put("createdFrom", filter.createdFrom());
+        }
+        if (filter.createdTo() != null) {
+            jpql.append(" and t.createdAt < :createdTo");
+            params.put("createdTo", filter.createdTo());
+        }
+        if (filter.updatedFrom() != null) {
+            jpql.append(" and t.updatedAt >= :updatedFrom");
+            params.put("updatedFrom", filter.updatedFrom());
+        }
+        if (filter.updatedTo() != null) {
+            jpql.append(" and t.updatedAt < :updatedTo");
+            params.put("updatedTo", filter.updatedTo());
+        }
+        if (filter.minAttempts() != null) {
+            jpql.append(" and t.attemptCount >= :minAttempts");
+            params.put("minAttempts", filter.minAttempts());
+        }
+        if (filter.maxAttempts() != null) {
+            jpql.append(" and t.attemptCount <= :maxAttempts");
+            params.put("maxAttempts", filter.maxAttempts());
+        }
+        if (afterUpdatedAt != null && afterId != null) {
+            // expanded row comparison; (a, b) < (x, y) is not used by MySQL for index ranges
+            jpql.append(" and (t.updatedAt < :afterUpdatedAt"
+                    + " or (t.updatedAt = :afterUpdatedAt and t.id < :afterId))");
+            params.put("afterUpdatedAt", afterUpdatedAt);
+            params.put("afterId", afterId);
+        }
+
+        jpql.append(" order by t.updatedAt desc, t.id desc");
+
+        TypedQuery<TaskSummary> query = entityManager.createQuery(jpql.toString(), TaskSummary.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
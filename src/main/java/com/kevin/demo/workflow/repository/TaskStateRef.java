@@ -0,0 +1,10 @@
+package com.kevin.demo.workflow.repository;
+
+import com.kevin.demo.workflow.domain.TaskState;
+
+public interface TaskStateRef {
+
+    Long getId();
+
+    TaskState getState();
+}
@@ -0,0 +1,16 @@
+package com.kevin.demo.workflow.repository;
+
+import java.time.Instant;
+
+import com.kevin.demo.workflow.domain.TaskState;
+
+public interface TaskStatusRef {
+
+    Long getId();
+
+    String getQueue();
+
+    TaskState getState();
+
+    Instant getUpdatedAt();
+}
@@ -0,0 +1,19 @@
+package com.kevin.demo.workflow.repository;
+
+import java.time.Instant;
+
+import com.kevin.demo.workflow.domain.TaskState;
+
+// list projection; leaves out the TEXT columns (description, last_error)
+public record TaskSummary(
+        Long id,
+        String title,
+        TaskState state,
+        int priority,
+        String queue,
+        int attemptCount,
+        int maxAttempts,
+        Instant nextAttemptAt,
+        Instant createdAt,
+        Instant updatedAt
+) {}
@@ -0,0 +1,28 @@
+package com.kevin.demo.workflow.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.kevin.demo.workflow.domain.TaskTemplate;
+
+public interface TaskTemplateRepository extends JpaRepository<TaskTemplate, Long> {
+
+    List<TaskTemplate> findAllByOrderByNameAsc();
+
+    boolean existsByName(String name);
+
+    // templates with occurrences due by :until; rows another node is materializing are skipped
+    @Query(value = """
+    select * from task_templates
+    where enabled = true
+    and next_run_at <= :until
+    order by next_run_at
+    limit :limit
+    for update skip locked
+    """, nativeQuery = true)
+    List<TaskTemplate> lockDueTemplates(@Param("until") Instant until, @Param("limit") int limit);
+}
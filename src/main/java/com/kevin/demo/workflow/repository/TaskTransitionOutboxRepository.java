@@ -0,0 +1,62 @@
+package com.kevin.demo.workflow.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.kevin.demo.workflow.domain.TaskTransitionOutbox;
+
+public interface TaskTransitionOutboxRepository extends JpaRepository<TaskTransitionOutbox, Long> {
+
+    // the next rows to move, oldest first; rows another node is moving are skipped
+    @Query(value = """
+    select id as id, task_id as taskId from task_transition_outbox
+    where failed_at is null
+    order by id
+    limit :limit
+    for update skip locked
+    """, nativeQuery = true)
+    List<OutboxRef> lockNext(@Param("limit") int limit);
+
+    // the given rows, when a failed batch is retried in parts
+    @Query(value = """
+    select id as id, task_id as taskId from task_transition_outbox
+    where id in (:ids)
+    and failed_at is null
+    for update skip locked
+    """, nativeQuery = true)
+    List<OutboxRef> lockByIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = """
+    insert into task_transitions (id, task_id, from_state, to_state, event, message, created_at)
+    select id, task_id, from_state, to_state, event, message, created_at
+    from task_transition_outbox
+    where id in (:ids)
+    """, nativeQuery = true)
+    int copyToHistory(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "delete from task_transition_outbox where id in (:ids)", nativeQuery = true)
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = """
+    update task_transition_outbox
+    set failed_at = :now, last_error = :error
+    where id = :id
+    """, nativeQuery = true)
+    int markFailed(@Param("id") Long id, @Param("error") String error, @Param("now") Instant now);
+
+    @Query(value = "select count(*) from task_transition_outbox where failed_at is null", nativeQuery = true)
+    long countPending();
+
+    // bounds incremental transition exports; the outbox is small, so a scan is fine
+    @Query(value = "select min(created_at) from task_transition_outbox where failed_at is null", nativeQuery = true)
+    Instant findOldestPendingCreatedAt();
+}
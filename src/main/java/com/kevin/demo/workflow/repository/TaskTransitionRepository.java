@@ -1,12 +1,41 @@
 package com.kevin.demo.workflow.repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.kevin.demo.workflow.domain.TaskTransition;
 
 public interface TaskTransitionRepository extends JpaRepository<TaskTransition, Long> {
 
     List<TaskTransition> findByTaskIdOrderByCreatedAtAsc(Long taskId);
+
+    // archival of whole task histories; see TaskArchiveService
+    @Modifying
+    @Query(value = """
+    insert into task_transitions_archive (
+        id, task_id, from_state, to_state, event, message, created_at, archived_at
+    )
+    select id, task_id, from_state, to_state, event, message, created_at, :now
+    from task_transitions
+    where task_id in (:taskIds)
+    """, nativeQuery = true)
+    int copyToArchive(@Param("taskIds") Collection<Long> taskIds, @Param("now") Instant now);
+
+    @Modifying
+    @Query(value = "delete from task_transitions where task_id in (:taskIds)", nativeQuery = true)
+    int deleteByTaskIds(@Param("taskIds") Collection<Long> taskIds);
+
+    @Modifying
+    @Query(value = """
+    delete from task_transitions_archive
+    where archived_at < :cutoff
+    limit :limit
+    """, nativeQuery = true)
+    int purgeArchive(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
 }
@@ -0,0 +1,35 @@
+package com.kevin.demo.workflow.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.kevin.demo.workflow.domain.TaskTypeLimit;
+
+import jakarta.persistence.LockModeType;
+
+public interface TaskTypeLimitRepository extends JpaRepository<TaskTypeLimit, String> {
+
+    // in key order, so claimers locking several types never deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from TaskTypeLimit l where l.taskType in :types order by l.taskType")
+    List<TaskTypeLimit> lockAll(@Param("types") Collection<String> types);
+
+    // first use of a type; a concurrent insert from another node is ignored
+    @Modifying
+    @Query(value = """
+    insert ignore into task_type_limits (task_type, tokens, refilled_at)
+    values (:taskType, :tokens, :now)
+    """, nativeQuery = true)
+    int insertIfMissing(
+        @Param("taskType") String taskType,
+        @Param("tokens") double tokens,
+        @Param("now") Instant now
+    );
+}
@@ -0,0 +1,12 @@
+package com.kevin.demo.workflow.repository;
+
+import java.time.Instant;
+
+import com.kevin.demo.workflow.domain.Task;
+
+/**
+ * Row read back after a guarded UPDATE, with when the task entered the state it just
+ * left (the UPDATE moved the old stateEnteredAt to previousStateEnteredAt). Null for
+ * a task whose state was last set before the state_entered_at column existed.
+ */
+public record UpdatedTask(Task task, Instant stateEnteredAt) {}
@@ -0,0 +1,37 @@
+package com.kevin.demo.workflow.scheduler;
+
+import java.time.Duration;
+
+/**
+ * Poll delay that doubles on every empty poll up to a maximum and snaps back
+ * to the minimum as soon as a poll finds work. A full batch means more work is
+ * likely waiting, so the next poll runs immediately.
+ */
+class AdaptivePollInterval {
+
+    private final long minMillis;
+    private final long maxMillis;
+    private long currentMillis;
+
+    AdaptivePollInterval(Duration min, Duration max) {
+        this.minMillis = Math.max(1, min.toMillis());
+        this.maxMillis = Math.max(minMillis, max.toMillis());
+        this.currentMillis = minMillis;
+    }
+
+    // returns how long to wait before the next poll
+    long next(int found, int limit) {
+        if (found == 0) {
+            currentMillis = Math.min(currentMillis * 2, maxMillis);
+            return currentMillis;
+        }
+
+        currentMillis = minMillis;
+        return found >= limit ? 0 : minMillis;
+    }
+
+    // a wakeup means work was just queued, so stop backing off
+    void reset() {
+        currentMillis = minMillis;
+    }
+}
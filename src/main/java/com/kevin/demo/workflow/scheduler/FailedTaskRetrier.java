@@ -0,0 +1,188 @@
+package com.kevin.demo.workflow.scheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.domain.TaskState;
+import com.kevin.demo.workflow.metrics.WorkflowMetrics;
+import com.kevin.demo.workflow.repository.TaskRepository;
+import com.kevin.demo.workflow.service.TaskService;
+import com.kevin.demo.workflow.service.TaskTransitionEvent;
+
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Queues FAILED tasks of this node's shards again once their {@code nextAttemptAt}
+ * has passed.
+ *
+ * Runs on its own thread instead of a fixed-delay {@code @Scheduled} method: after
+ * each pass it reads the earliest {@code next_attempt_at} left in its shards and
+ * sleeps until then, so a retry runs on time rather than up to a poll interval late.
+ * A task failed on this node wakes it as soon as the failure commits, in case it is
+ * due before the planned wakeup. The sleep is capped at
+ * {@code workflow.scheduler.max-poll-interval}, which picks up tasks failed on other
+ * nodes and shards this node took over.
+ */
+@Component
+public class FailedTaskRetrier implements SmartLifecycle {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(FailedTaskRetrier.class);
+
+    // due tasks read per pass; a full page means more are due
+    private static final int BATCH_SIZE = 50;
+
+    private final TaskRepository taskRepository;
+    private final TaskService taskService;
+    private final ShardCoordinator shards;
+    private final SchedulerProperties properties;
+    private final Timer pollTimer;
+
+    // at most one pending wakeup; extra signals while one is pending are redundant
+    private final Semaphore wakeups = new Semaphore(0);
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public FailedTaskRetrier(TaskRepository taskRepository,
+                             TaskService taskService,
+                             ShardCoordinator shards,
+                             SchedulerProperties properties,
+                             WorkflowMetrics metrics) {
+        this.taskRepository = taskRepository;
+        this.taskService = taskService;
+        this.shards = shards;
+        this.properties = properties;
+        this.pollTimer = metrics.pollTimer("failed");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TaskTransitionEvent event) {
+        if (event.toState() == TaskState.FAILED) {
+            wakeUp();
+        }
+    }
+
+    public void wakeUp() {
+        if (wakeups.availablePermits() == 0) {
+            wakeups.release();
+        }
+    }
+
+    // one retry pass; returns the delay in millis before the next one
+    public long pollOnce() {
+        return pollTimer.record(this::retryDueTasks);
+    }
+
+    private long retryDueTasks() {
+        long maxDelay = properties.maxPollInterval().toMillis();
+
+        Set<Integer> owned = shards.ownedShards();
+        if (owned.isEmpty()) return maxDelay;
+
+        List<Task> due;
+        try {
+            due = taskRepository.findDueForRetry(owned, Instant.now(), Limit.of(BATCH_SIZE));
+        } catch (Exception e) {
+            log.error("poll_failed_error", e);
+            return maxDelay;
+        }
+
+        int retriedCount = 0;
+        if (!due.isEmpty()) {
+            log.debug("poll_failed start count={}", due.size());
+
+            for (Task task : due) {
+                try {
+                    taskService.retry(task.getId());
+                    retriedCount++;
+                    log.info("task_retried taskId={} attempt={}", task.getId(), task.getAttemptCount());
+                } catch (IllegalStateException e) {
+                    log.warn("task_retry_skip taskId={} reason={}", task.getId(), e.getMessage());
+                } catch (Exception e) {
+                    log.error("task_retry_error taskId={}", task.getId(), e);
+                }
+            }
+
+            log.info("poll_failed end scanned={} retried={}", due.size(), retriedCount);
+            if (due.size() == BATCH_SIZE && retriedCount > 0) return 0;
+            // none of them could be retried; they stay FAILED and due, so do not spin on them
+            if (retriedCount == 0) return maxDelay;
+        }
+
+        Instant next;
+        try {
+            List<Instant> earliest = taskRepository.findNextAttemptAt(owned, Limit.of(1));
+            next = earliest.isEmpty() ? null : earliest.get(0);
+        } catch (Exception e) {
+            log.error("poll_failed_error", e);
+            return maxDelay;
+        }
+
+        if (next == null) {
+            log.debug("poll_failed empty");
+            return maxDelay;
+        }
+        long delay = Duration.between(Instant.now(), next).toMillis();
+        return Math.max(0, Math.min(delay, maxDelay));
+    }
+
+    private void loop() {
+        while (running) {
+            long delayMillis = pollOnce();
+
+            try {
+                if (delayMillis > 0) {
+                    wakeups.tryAcquire(delayMillis, TimeUnit.MILLISECONDS);
+                }
+                wakeups.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return properties.enabled();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::loop, "failed-task-retrier");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread == null) return;
+
+        wakeUp();
+        try {
+            thread.join(properties.maxPollInterval().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
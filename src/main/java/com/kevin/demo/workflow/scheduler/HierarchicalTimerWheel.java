@@ -0,0 +1,130 @@
+package com.kevin.demo.workflow.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: 64 slots per level, each level covering 64 times the
+ * span of the one below. Scheduling and expiring are O(1) per item however many
+ * are pending; an item far in the future sits in a coarse slot and is cascaded
+ * down a level each time its slot comes round, until it lands in the level 0 slot
+ * of its own tick.
+ *
+ * Deadlines are rounded up to the next tick, so an item never fires early and at
+ * most one tick late. Not thread safe; owned by a single dispatcher thread.
+ */
+public class HierarchicalTimerWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private record Entry<T>(T item, long deadlineTick) {}
+
+    private final long tickMillis;
+    private final int levels;
+    private final List<List<List<Entry<T>>>> wheels;
+
+    // last tick that has been expired
+    private long currentTick;
+    private int size;
+
+    public HierarchicalTimerWheel(long tickMillis, int levels, long startMillis) {
+        if (tickMillis <= 0 || levels < 1 || levels * SLOT_BITS >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("Invalid timer wheel: tick=" + tickMillis + " levels=" + levels);
+        }
+        this.tickMillis = tickMillis;
+        this.levels = levels;
+        this.currentTick = startMillis / tickMillis;
+
+        this.wheels = new ArrayList<>(levels);
+        for (int level = 0; level < levels; level++) {
+            List<List<Entry<T>>> slots = new ArrayList<>(SLOTS);
+            for (int slot = 0; slot < SLOTS; slot++) {
+                slots.add(new ArrayList<>());
+            }
+            wheels.add(slots);
+        }
+    }
+
+    // longest delay the wheel can hold, from the current tick
+    public long horizonMillis() {
+        return ((1L << (SLOT_BITS * levels)) - 1) * tickMillis;
+    }
+
+    // overdue deadlines fire on the next tick
+    public void schedule(T item, long deadlineMillis) {
+        long deadlineTick = Math.max(-Math.floorDiv(-deadlineMillis, tickMillis), currentTick + 1);
+        if (deadlineTick - currentTick >= 1L << (SLOT_BITS * levels)) {
+            throw new IllegalArgumentException(
+                    "Deadline beyond timer wheel horizon: " + deadlineMillis
+            );
+        }
+
+        place(new Entry<>(item, deadlineTick));
+        size++;
+    }
+
+    // moves the wheel up to nowMillis and returns the items that came due, tick by tick
+    public List<T> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<>();
+
+        if (size == 0) {
+            currentTick = Math.max(currentTick, targetTick);
+            return expired;
+        }
+
+        while (currentTick < targetTick && size > 0) {
+            currentTick++;
+
+            // coarser levels first, so an item cascading through several levels
+            // on the same tick ends up in the right slot before level 0 expires
+            for (int level = levels - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, slotIndex(currentTick, level));
+                }
+            }
+
+            List<Entry<T>> slot = wheels.get(0).get(slotIndex(currentTick, 0));
+            for (Entry<T> entry : slot) {
+                expired.add(entry.item());
+            }
+            size -= slot.size();
+            slot.clear();
+        }
+
+        currentTick = Math.max(currentTick, targetTick);
+        return expired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void cascade(int level, int slotIndex) {
+        List<Entry<T>> slot = wheels.get(level).get(slotIndex);
+        if (slot.isEmpty()) return;
+
+        List<Entry<T>> entries = new ArrayList<>(slot);
+        slot.clear();
+        entries.forEach(this::place);
+    }
+
+    // level l holds deadlines 64^l to 64^(l+1) ticks away; a deadline on the current
+    // tick (reached through a cascade) goes to level 0 and expires on this tick
+    private void place(Entry<T> entry) {
+        long delta = entry.deadlineTick() - currentTick;
+
+        int level = 0;
+        while (level < levels - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+
+        wheels.get(level).get(slotIndex(entry.deadlineTick(), level)).add(entry);
+    }
+
+    private static int slotIndex(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+}
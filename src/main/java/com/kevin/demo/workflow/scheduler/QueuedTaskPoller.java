@@ -0,0 +1,158 @@
+package com.kevin.demo.workflow.scheduler;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.domain.TaskState;
+import com.kevin.demo.workflow.metrics.WorkflowMetrics;
+import com.kevin.demo.workflow.service.TaskService;
+import com.kevin.demo.workflow.service.TaskTransitionEvent;
+import com.kevin.demo.workflow.worker.TaskExecutionEngine;
+
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Claims QUEUED tasks and hands them to the execution engine.
+ *
+ * Runs on its own thread instead of a fixed-delay {@code @Scheduled} method: a
+ * committed transition into QUEUED on this node wakes it immediately, and while
+ * the queue is empty the poll interval backs off (see {@link AdaptivePollInterval})
+ * so an idle node barely touches the database. The backed-off poll still picks up
+ * tasks queued by other nodes.
+ */
+@Component
+public class QueuedTaskPoller implements SmartLifecycle {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(QueuedTaskPoller.class);
+
+    private final TaskService taskService;
+    private final TaskExecutionEngine executionEngine;
+    private final SchedulerProperties properties;
+    private final AdaptivePollInterval interval;
+    private final Timer pollTimer;
+
+    // at most one pending wakeup; extra signals while one is pending are redundant
+    private final Semaphore wakeups = new Semaphore(0);
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public QueuedTaskPoller(TaskService taskService,
+                            TaskExecutionEngine executionEngine,
+                            SchedulerProperties properties,
+                            WorkflowMetrics metrics) {
+        this.taskService = taskService;
+        this.executionEngine = executionEngine;
+        this.properties = properties;
+        this.pollTimer = metrics.pollTimer("queued");
+        this.interval = new AdaptivePollInterval(
+                properties.minPollInterval(),
+                properties.maxPollInterval()
+        );
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TaskTransitionEvent event) {
+        if (event.toState() == TaskState.QUEUED) {
+            wakeUp();
+        }
+    }
+
+    public void wakeUp() {
+        if (wakeups.availablePermits() == 0) {
+            wakeups.release();
+        }
+    }
+
+    // one claim cycle; returns the delay in millis before the next one
+    public long pollOnce() {
+        return pollTimer.record(this::claimBatch);
+    }
+
+    private long claimBatch() {
+
+        int limit = Math.min(properties.claimBatchSize(), executionEngine.availableCapacity());
+        if (limit == 0) {
+            // capacity frees up as handlers finish, so keep checking at the fast rate
+            log.debug("poll_queued skip reason=engine_full inFlight={}", executionEngine.inFlight());
+            return properties.minPollInterval().toMillis();
+        }
+
+        List<Task> claimed;
+        try {
+            claimed = taskService.claimQueuedBatch(limit);
+        } catch (Exception e) {
+            log.error("poll_queued_error", e);
+            return interval.next(0, limit);
+        }
+
+        if (claimed.isEmpty()) {
+            log.debug("poll_queued empty");
+            return interval.next(0, limit);
+        }
+
+        for (Task task : claimed) {
+            log.info("task_claimed taskId={}", task.getId());
+            executionEngine.dispatch(task);
+        }
+
+        log.info("poll_queued end limit={} claimed={}", limit, claimed.size());
+        return interval.next(claimed.size(), limit);
+    }
+
+    private void loop() {
+        while (running) {
+            long delayMillis = pollOnce();
+
+            try {
+                if (delayMillis > 0 && wakeups.tryAcquire(delayMillis, TimeUnit.MILLISECONDS)) {
+                    interval.reset();
+                }
+                wakeups.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return properties.enabled();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::loop, "queued-task-poller");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread == null) return;
+
+        wakeUp();
+        try {
+            thread.join(properties.maxPollInterval().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
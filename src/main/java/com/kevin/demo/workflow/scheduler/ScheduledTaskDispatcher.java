@@ -0,0 +1,235 @@
+package com.kevin.demo.workflow.scheduler;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.kevin.demo.workflow.repository.ScheduledTaskRef;
+import com.kevin.demo.workflow.repository.TaskRepository;
+import com.kevin.demo.workflow.service.TaskScheduledEvent;
+import com.kevin.demo.workflow.service.TaskService;
+import com.kevin.demo.workflow.service.TaskTemplateService;
+import com.kevin.demo.workflow.service.TimerProperties;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Queues SCHEDULED tasks when their runAt arrives, using an in-memory
+ * {@link HierarchicalTimerWheel} instead of polling the table.
+ *
+ * The wheel holds the tasks due within {@code workflow.timer.horizon}. That window
+ * is loaded from the (state, run_at) index and reloaded every reload interval,
+ * which also picks up tasks scheduled on other nodes and anything a failed release
+ * left behind. Tasks scheduled on this node inside the loaded window are added as
+ * soon as their transaction commits. Cron templates are materialized on the same
+ * interval, so their occurrences enter the wheel like any other scheduled task.
+ *
+ * Every node runs a dispatcher and may hold the same tasks; the release locks the
+ * rows with SKIP LOCKED and re-checks state and runAt, so each task is queued once.
+ */
+@Component
+public class ScheduledTaskDispatcher implements SmartLifecycle {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(ScheduledTaskDispatcher.class);
+
+    private static final int WHEEL_LEVELS = 4;
+    private static final int RELEASE_BATCH_SIZE = 500;
+
+    private final TaskRepository taskRepository;
+    private final TaskService taskService;
+    private final TaskTemplateService templateService;
+    private final SchedulerProperties schedulerProperties;
+    private final TimerProperties properties;
+
+    // filled by committing transactions, drained by the dispatcher thread
+    private final Queue<TaskScheduledEvent> inbox = new ConcurrentLinkedQueue<>();
+
+    // the wheel and the ids it holds are only touched by the dispatcher thread
+    private HierarchicalTimerWheel<Long> wheel;
+    private final Set<Long> wheelIds = new HashSet<>();
+
+    // runAt bound of the loaded window; later tasks wait for a reload
+    private volatile Instant loadedUntil = Instant.MIN;
+    private volatile int pending;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public ScheduledTaskDispatcher(TaskRepository taskRepository,
+                                   TaskService taskService,
+                                   TaskTemplateService templateService,
+                                   SchedulerProperties schedulerProperties,
+                                   TimerProperties properties,
+                                   MeterRegistry registry) {
+        this.taskRepository = taskRepository;
+        this.taskService = taskService;
+        this.templateService = templateService;
+        this.schedulerProperties = schedulerProperties;
+        this.properties = properties;
+
+        Gauge.builder("workflow.timer.pending", this, dispatcher -> dispatcher.pending)
+                .description("Scheduled tasks held in the timer wheel")
+                .register(registry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduled(TaskScheduledEvent event) {
+        if (running && !event.runAt().isAfter(loadedUntil)) {
+            inbox.add(event);
+        }
+    }
+
+    private void loop() {
+        long tickMillis = properties.tick().toMillis();
+        long reloadMillis = properties.reloadInterval().toMillis();
+        long nextReloadAt = 0;
+
+        while (running) {
+            long now = System.currentTimeMillis();
+
+            if (now >= nextReloadAt) {
+                materializeTemplates(now);
+                reload(now);
+                nextReloadAt = now + reloadMillis;
+            }
+
+            drainInbox();
+            release(wheel.advance(now));
+            pending = wheel.size();
+
+            try {
+                Thread.sleep(tickMillis - System.currentTimeMillis() % tickMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void materializeTemplates(long nowMillis) {
+        Instant now = Instant.ofEpochMilli(nowMillis);
+        try {
+            int created = templateService.materializeDue(now);
+            if (created > 0) {
+                log.info("task_templates_materialized created={}", created);
+            }
+        } catch (Exception e) {
+            log.error("task_templates_materialize_error", e);
+        }
+    }
+
+    private void reload(long nowMillis) {
+        // raise the bound before reading, so a task committed after the read
+        // is still accepted through the inbox
+        Instant until = Instant.ofEpochMilli(nowMillis).plus(properties.horizon());
+        loadedUntil = until;
+
+        List<ScheduledTaskRef> refs;
+        try {
+            refs = taskRepository.findScheduledUntil(until, Limit.of(properties.maxLoaded()));
+        } catch (Exception e) {
+            log.error("timer_reload_error", e);
+            return;
+        }
+
+        int added = 0;
+        for (ScheduledTaskRef ref : refs) {
+            if (add(ref.getId(), ref.getRunAt())) {
+                added++;
+            }
+        }
+
+        if (refs.size() == properties.maxLoaded()) {
+            // window is full; later tasks are picked up by the next reload
+            loadedUntil = refs.get(refs.size() - 1).getRunAt();
+            log.warn("timer_reload_truncated loaded={} until={}", refs.size(), loadedUntil);
+        }
+
+        log.debug("timer_reload scanned={} added={} pending={}", refs.size(), added, wheel.size());
+    }
+
+    private void drainInbox() {
+        TaskScheduledEvent event;
+        while ((event = inbox.poll()) != null) {
+            add(event.taskId(), event.runAt());
+        }
+    }
+
+    private boolean add(Long taskId, Instant runAt) {
+        if (!wheelIds.add(taskId)) return false;
+
+        wheel.schedule(taskId, runAt.toEpochMilli());
+        return true;
+    }
+
+    private void release(List<Long> due) {
+        if (due.isEmpty()) return;
+
+        due.forEach(wheelIds::remove);
+
+        // a task not released here (already released elsewhere, or the batch failed)
+        // is still SCHEDULED if it needs to be and comes back with the next reload
+        for (int from = 0; from < due.size(); from += RELEASE_BATCH_SIZE) {
+            List<Long> batch = due.subList(from, Math.min(from + RELEASE_BATCH_SIZE, due.size()));
+            try {
+                int released = taskService.releaseDueScheduled(batch);
+                log.info("scheduled_released due={} released={}", batch.size(), released);
+            } catch (Exception e) {
+                log.error("scheduled_release_error count={}", batch.size(), e);
+            }
+        }
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return schedulerProperties.enabled();
+    }
+
+    @Override
+    public void start() {
+        wheel = new HierarchicalTimerWheel<>(
+                properties.tick().toMillis(), WHEEL_LEVELS, System.currentTimeMillis()
+        );
+        if (properties.horizon().plus(properties.reloadInterval()).toMillis() > wheel.horizonMillis()) {
+            throw new IllegalStateException(
+                    "workflow.timer.horizon is too long for tick " + properties.tick()
+            );
+        }
+
+        running = true;
+        thread = new Thread(this::loop, "scheduled-task-dispatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        loadedUntil = Instant.MIN;
+        if (thread == null) return;
+
+        // the loop sleeps at most one tick between checks
+        try {
+            thread.join(properties.reloadInterval().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
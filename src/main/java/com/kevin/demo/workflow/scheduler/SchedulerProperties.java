@@ -0,0 +1,21 @@
+package com.kevin.demo.workflow.scheduler;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled         run the claim loop and the {@code @Scheduled} maintenance loops;
+ *                        benchmarks and tools turn this off and drive the loops directly
+ * @param claimBatchSize  max QUEUED tasks claimed per poll
+ * @param minPollInterval poll interval while batches keep coming back non-empty
+ * @param maxPollInterval upper bound the interval backs off to while the queue is empty
+ */
+@ConfigurationProperties("workflow.scheduler")
+public record SchedulerProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("50") int claimBatchSize,
+        @DefaultValue("50ms") Duration minPollInterval,
+        @DefaultValue("5s") Duration maxPollInterval
+) {}
@@ -0,0 +1,157 @@
+package com.kevin.demo.workflow.scheduler;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kevin.demo.workflow.domain.SchedulerNode;
+import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.repository.SchedulerNodeRepository;
+import com.kevin.demo.workflow.repository.ShardLeaseRepository;
+import com.kevin.demo.workflow.service.NodeIdentity;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Splits the {@link Task#SHARDS} task shards between the live scheduler nodes, so each
+ * node's maintenance scans cover a disjoint slice of the table.
+ *
+ * Every heartbeat a node records itself in {@code scheduler_nodes}, renews the shard
+ * leases it holds and moves towards its fair share, ceil(shards / live nodes): a node
+ * above it releases shards, one below it takes unowned or expired ones (SKIP LOCKED,
+ * so nodes rebalancing together never take the same shard). A node that stops
+ * heartbeating loses its shards once their leases run out; one that joins gets
+ * shards as the others shed theirs.
+ *
+ * The holder of shard 0 is the leader and runs the table-wide loops (archival,
+ * idempotency key cleanup). Ownership can overlap for up to one heartbeat while a
+ * shard moves; the scans only issue guarded updates, so an overlap costs a duplicate
+ * query, not a duplicate transition.
+ */
+@Component
+public class ShardCoordinator {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(ShardCoordinator.class);
+
+    private static final int LEADER_SHARD = 0;
+
+    private static final Set<Integer> ALL_SHARDS =
+            IntStream.range(0, Task.SHARDS).boxed().collect(Collectors.toUnmodifiableSet());
+
+    private final ShardLeaseRepository leaseRepository;
+    private final SchedulerNodeRepository nodeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardProperties properties;
+    private final String nodeId;
+
+    private volatile Set<Integer> owned = Set.of();
+    // leases are only trusted until they would have expired without a renewal
+    private volatile Instant ownedUntil = Instant.MIN;
+
+    public ShardCoordinator(ShardLeaseRepository leaseRepository,
+                            SchedulerNodeRepository nodeRepository,
+                            PlatformTransactionManager transactionManager,
+                            ShardProperties properties,
+                            NodeIdentity nodeIdentity,
+                            MeterRegistry registry) {
+        this.leaseRepository = leaseRepository;
+        this.nodeRepository = nodeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.nodeId = nodeIdentity.id();
+
+        Gauge.builder("workflow.shards.owned", this, coordinator -> coordinator.ownedShards().size())
+                .description("Task shards this node scans")
+                .register(registry);
+    }
+
+    // shards this node should scan right now
+    public Set<Integer> ownedShards() {
+        if (!properties.enabled()) return ALL_SHARDS;
+        return Instant.now().isBefore(ownedUntil) ? owned : Set.of();
+    }
+
+    public boolean isLeader() {
+        return ownedShards().contains(LEADER_SHARD);
+    }
+
+    @Scheduled(fixedDelayString = "${workflow.shards.heartbeat-interval:5s}")
+    public void rebalance() {
+        if (!properties.enabled()) return;
+
+        Instant now = Instant.now();
+        try {
+            List<Integer> shards = transactionTemplate.execute(status -> heartbeat(now));
+            Set<Integer> current = new TreeSet<>(shards);
+            if (!current.equals(owned)) {
+                log.info("shards_rebalanced node={} owned={} shards={}", nodeId, current.size(), current);
+            }
+            owned = current;
+            ownedUntil = now.plus(properties.leaseDuration());
+        } catch (Exception e) {
+            // keep scanning the held shards until their leases would have run out
+            log.error("shard_rebalance_error node={}", nodeId, e);
+        }
+    }
+
+    private List<Integer> heartbeat(Instant now) {
+        Instant expiresAt = now.plus(properties.leaseDuration());
+        Instant staleBefore = now.minus(properties.leaseDuration());
+
+        if (nodeRepository.touch(nodeId, now) == 0) {
+            nodeRepository.save(new SchedulerNode(nodeId, now));
+        }
+        nodeRepository.deleteStale(staleBefore);
+        long liveNodes = Math.max(1, nodeRepository.countByHeartbeatAtAfter(staleBefore));
+        int target = (int) -Math.floorDiv(-Task.SHARDS, liveNodes);
+
+        leaseRepository.renew(nodeId, expiresAt);
+        List<Integer> shards = new ArrayList<>(leaseRepository.findOwned(nodeId));
+
+        if (shards.size() > target) {
+            // shed the highest shards, so the leader shard stays put while nodes join
+            List<Integer> extra = List.copyOf(shards.subList(target, shards.size()));
+            leaseRepository.release(nodeId, extra);
+            shards.removeAll(extra);
+        } else if (shards.size() < target) {
+            List<Integer> free = leaseRepository.lockFree(now, target - shards.size());
+            if (!free.isEmpty()) {
+                leaseRepository.assign(free, nodeId, expiresAt);
+                shards.addAll(free);
+            }
+        }
+        return shards;
+    }
+
+    // hand the shards over right away instead of after the lease duration
+    @PreDestroy
+    public void release() {
+        if (!properties.enabled() || owned.isEmpty()) return;
+
+        owned = Set.of();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                leaseRepository.releaseAll(nodeId);
+                nodeRepository.deleteById(nodeId);
+            });
+            log.info("shards_released node={}", nodeId);
+        } catch (Exception e) {
+            log.warn("shard_release_error node={}", nodeId, e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.kevin.demo.workflow.scheduler;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled           split the maintenance scans across nodes by shard lease; when
+ *                          off this node scans every shard and runs the leader-only loops
+ * @param heartbeatInterval how often a node renews its leases and rebalances
+ * @param leaseDuration     a node that has not renewed for this long is considered gone
+ *                          and its shards are taken over
+ */
+@ConfigurationProperties("workflow.shards")
+public record ShardProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("5s") Duration heartbeatInterval,
+        @DefaultValue("20s") Duration leaseDuration
+) {}
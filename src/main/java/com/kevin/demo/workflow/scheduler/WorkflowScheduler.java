@@ -2,185 +2,155 @@ package com.kevin.demo.workflow.scheduler;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import com.kevin.demo.workflow.domain.Task;
 import com.kevin.demo.workflow.domain.TaskState;
+import com.kevin.demo.workflow.metrics.WorkflowMetrics;
 import com.kevin.demo.workflow.repository.TaskRepository;
+import com.kevin.demo.workflow.service.ArchiveProperties;
+import com.kevin.demo.workflow.service.IdempotencyProperties;
+import com.kevin.demo.workflow.service.IdempotencyService;
+import com.kevin.demo.workflow.service.TaskArchiveService;
 import com.kevin.demo.workflow.service.TaskService;
 
+import io.micrometer.core.instrument.Timer;
+
 @Component
 public class WorkflowScheduler {
 
     private static final Logger log =
             LoggerFactory.getLogger(WorkflowScheduler.class);
 
+    private static final int IDEMPOTENCY_DELETE_BATCH = 5_000;
+    private static final int LEASE_BATCH_SIZE = 50;
+
     private final TaskRepository taskRepository;
     private final TaskService taskService;
-
-    public WorkflowScheduler(TaskRepository taskRepository, TaskService taskService) {
+    private final ShardCoordinator shards;
+    private final IdempotencyService idempotencyService;
+    private final IdempotencyProperties idempotencyProperties;
+    private final TaskArchiveService archiveService;
+    private final ArchiveProperties archiveProperties;
+    private final Timer leasePollTimer;
+    private final Timer idempotencyPollTimer;
+    private final Timer archivePollTimer;
+
+    public WorkflowScheduler(TaskRepository taskRepository,
+                             TaskService taskService,
+                             ShardCoordinator shards,
+                             IdempotencyService idempotencyService,
+                             IdempotencyProperties idempotencyProperties,
+                             TaskArchiveService archiveService,
+                             ArchiveProperties archiveProperties,
+                             WorkflowMetrics metrics) {
         this.taskRepository = taskRepository;
         this.taskService = taskService;
+        this.shards = shards;
+        this.idempotencyService = idempotencyService;
+        this.idempotencyProperties = idempotencyProperties;
+        this.archiveService = archiveService;
+        this.archiveProperties = archiveProperties;
+        this.leasePollTimer = metrics.pollTimer("lease");
+        this.idempotencyPollTimer = metrics.pollTimer("idempotency");
+        this.archivePollTimer = metrics.pollTimer("archive");
     }
 
-    // check QUEUED tasks and attempt to claim them for PROCESSING
-    @Scheduled(fixedDelay = 3_000)
-    public void pollQueuedTasks() {
-
-        List<Task> queuedTasks =
-                taskRepository.findTop50ByStateOrderByUpdatedAtAsc(TaskState.QUEUED);
-
-        if (queuedTasks.isEmpty()) {
-            log.debug("poll_queued empty");
-
-            return;
-        }
-
-        int claimedCount = 0;
-        log.debug("poll_queued start count={}", queuedTasks.size());
-
-        for (Task task : queuedTasks) {
-            try {
-                boolean claimed = taskService.claimForProcessing(task.getId());
-                if (claimed) {
-                    claimedCount++;
-                    log.info("task_claimed taskId={}", task.getId());
-                }
-            } catch (IllegalStateException e) {
-                // Expected occasionally (races / invalid state by the time we touch it)
-                log.warn("task_claim_skip taskId={} reason={}", task.getId(), e.getMessage());
-            } catch (Exception e) {
-                // Unexpected
-                log.error("task_claim_error taskId={}", task.getId(), e);
-            }
-        }
-
-        log.info("poll_queued end scanned={} claimed={}", queuedTasks.size(), claimedCount);
+    // fails PROCESSING tasks whose lease was not renewed in time; a task whose
+    // worker keeps heartbeating is never timed out, however long it runs
+    @Scheduled(fixedDelayString = "${workflow.lease.reap-interval:5s}")
+    public void pollExpiredLeases() {
+        leasePollTimer.record(this::expireLeases);
     }
 
-    // check PROCESSING tasks and simulate fail first attempt, then complete
-    @Scheduled(fixedDelay = 1_500_000)
-    public void pollProcessingTasks() {
+    private void expireLeases() {
 
-        List<Task> processing =
-                taskRepository.findTop50ByStateOrderByUpdatedAtAsc(TaskState.PROCESSING);
+        Set<Integer> owned = shards.ownedShards();
+        if (owned.isEmpty()) return;
 
-        if (processing.isEmpty()) {
-            log.debug("poll_processing empty");
-            return;
-        }
+        Instant now = Instant.now();
 
-        int failedCount = 0;
-        int completedCount = 0;
-        log.debug("poll_processing start count={}", processing.size());
+        List<Task> expired =
+                taskRepository.findExpiredLeases(owned, now, Limit.of(LEASE_BATCH_SIZE));
 
-        for (Task task : processing) {
+        for (Task task : expired) {
             try {
-                // Simulate: first attempt fails, next attempt completes
-                boolean shouldFail = task.getAttemptCount() == 0;
-
-                if (shouldFail) {
-                    taskService.fail(task.getId(), "Simulated failure on first attempt");
-                    failedCount++;
-                    log.info("task_failed taskId={} attempt={}", task.getId(), task.getAttemptCount());
-                } else {
-                    taskService.complete(task.getId());
-                    completedCount++;
-                    log.info("task_completed taskId={} attempt={}", task.getId(), task.getAttemptCount());
+                if (taskService.expireLeaseIfDue(task.getId(), now)) {
+                    log.info("task_lease_expired taskId={} owner={}", task.getId(), task.getLeaseOwner());
                 }
-            } catch (IllegalStateException e) {
-                log.warn("task_processing_skip taskId={} reason={}", task.getId(), e.getMessage());
             } catch (Exception e) {
-                log.error("task_processing_error taskId={}", task.getId(), e);
+                log.warn("task_timeout_error taskId={}", task.getId(), e);
             }
         }
-
-        log.info("poll_processing end scanned={} failed={} completed={}",
-                processing.size(), failedCount, completedCount);
     }
 
-    @Scheduled(fixedDelay = 10_000)
-    public void pollStaleProcessingTasks() {
-
-        // handles PROCESSING tasks as stale if not updated for 10 minutes
-        Instant cutoff = Instant.now().minusSeconds(600);
-
-        List<Task> processing =
-                taskRepository.findTop50ByStateOrderByUpdatedAtAsc(TaskState.PROCESSING);
-
-        for (Task task : processing) {
-
-            // stops when hits a non-stale task due to ascending order
-            if (!task.getUpdatedAt().isBefore(cutoff)) {
-                break;
-            }
-
-            try {
-                taskService.timeoutProcessingIfStale(task.getId(), cutoff);
-            } catch (Exception e) {
-                log.warn("task_timeout_error taskId={}", task.getId(), e);
-            }
-        }
+    // drops stored idempotent responses past their retention, a bounded batch per delete
+    @Scheduled(fixedDelayString = "${workflow.idempotency.cleanup-interval:10m}")
+    public void pollExpiredIdempotencyKeys() {
+        // table-wide cleanup, run by one node
+        if (!shards.isLeader()) return;
+        idempotencyPollTimer.record(this::deleteExpiredIdempotencyKeys);
     }
 
-    // check FAILED tasks and auto-retry with backoff (15s/attempt, cap 60s) up to maxAttempts
-    @Scheduled(fixedDelay = 5_000)
-    public void pollFailedTasks() {
+    private void deleteExpiredIdempotencyKeys() {
+        Instant cutoff = Instant.now().minus(idempotencyProperties.retention());
 
-        List<Task> failed =
-                taskRepository.findTop50ByStateOrderByUpdatedAtAsc(TaskState.FAILED);
+        int deleted = 0;
+        int batch;
+        do {
+            batch = idempotencyService.deleteExpired(cutoff, IDEMPOTENCY_DELETE_BATCH);
+            deleted += batch;
+        } while (batch == IDEMPOTENCY_DELETE_BATCH);
 
-        if (failed.isEmpty()) {
-            log.debug("poll_failed empty");
-            return;
+        if (deleted > 0) {
+            log.info("idempotency_keys_expired deleted={} cutoff={}", deleted, cutoff);
         }
+    }
 
-        int retriedCount = 0;
-        int waitingCount = 0;
-        log.debug("poll_failed start count={}", failed.size());
-
-        for (Task task : failed) {
-            try {
-                if (task.getAttemptCount() >= task.getMaxAttempts()) {
-                    log.warn("task_retry_giveup taskId={} attempt={} maxAttempts={}",
-                            task.getId(), task.getAttemptCount(), task.getMaxAttempts());
-                    continue;
-                }
-
-                if (!readyToRetry(task)) {
-                    waitingCount++;
-                    log.debug("task_retry_wait taskId={} attempt={} nextDelaySec={}",
-                            task.getId(), task.getAttemptCount(), computeDelaySeconds(task.getAttemptCount()));
-                    continue;
-                }
+    // moves old COMPLETED and DEAD_LETTER tasks to the archive tables, one short
+    // transaction per batch so row locks never pile up behind a long delete
+    @Scheduled(fixedDelayString = "${workflow.archive.interval:10m}", initialDelayString = "${workflow.archive.interval:10m}")
+    public void pollArchival() {
+        if (!archiveProperties.enabled() || !shards.isLeader()) return;
+        archivePollTimer.record(this::archiveOldTasks);
+    }
 
-                taskService.retry(task.getId());
-                retriedCount++;
-                log.info("task_retried taskId={} attempt={}", task.getId(), task.getAttemptCount());
-            } catch (IllegalStateException e) {
-                log.warn("task_retry_skip taskId={} reason={}", task.getId(), e.getMessage());
-            } catch (Exception e) {
-                log.error("task_retry_error taskId={}", task.getId(), e);
+    private void archiveOldTasks() {
+        Instant cutoff = Instant.now().minus(archiveProperties.retention());
+        int batchSize = archiveProperties.batchSize();
+
+        int batches = 0;
+        for (TaskState state : TaskArchiveService.ARCHIVED_STATES) {
+            int archived = 0;
+            int batch;
+            do {
+                batch = archiveService.archiveBatch(state, cutoff, batchSize);
+                archived += batch;
+            } while (batch == batchSize && ++batches < archiveProperties.maxBatchesPerRun());
+
+            if (archived > 0) {
+                log.info("tasks_archived state={} count={} cutoff={}", state, archived, cutoff);
             }
         }
 
-        log.info("poll_failed end scanned={} retried={} waiting={}",
-                failed.size(), retriedCount, waitingCount);
-    }
+        if (archiveProperties.purgeAfter().isZero()) return;
 
-    private boolean readyToRetry(Task task) {
-        int delaySeconds = computeDelaySeconds(task.getAttemptCount());
-        return task.getUpdatedAt()
-                .plusSeconds(delaySeconds)
-                .isBefore(Instant.now());
-    }
+        Instant purgeCutoff = Instant.now().minus(archiveProperties.purgeAfter());
+        int purged = 0;
+        int batch;
+        do {
+            batch = archiveService.purgeBatch(purgeCutoff, batchSize);
+            purged += batch;
+        } while (batch > 0 && ++batches < archiveProperties.maxBatchesPerRun());
 
-    private int computeDelaySeconds(int attemptCount) {
-        // 15 seconds per attempt, max 180 seconds
-        return Math.min(attemptCount * 15, 180);
+        if (purged > 0) {
+            log.info("archive_purged rows={} cutoff={}", purged, purgeCutoff);
+        }
     }
 }
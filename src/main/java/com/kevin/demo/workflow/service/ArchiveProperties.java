@@ -0,0 +1,24 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled          move old terminal tasks into the archive tables
+ * @param retention        COMPLETED and DEAD_LETTER tasks untouched for this long are archived
+ * @param purgeAfter       archived rows older than this are deleted; zero keeps them forever
+ * @param interval         pause between archival runs
+ * @param batchSize        tasks moved per transaction; keeps row locks and undo short
+ * @param maxBatchesPerRun bounds one run, so a large backlog is worked off over several runs
+ */
+@ConfigurationProperties("workflow.archive")
+public record ArchiveProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("30d") Duration retention,
+        @DefaultValue("0s") Duration purgeAfter,
+        @DefaultValue("10m") Duration interval,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("200") int maxBatchesPerRun
+) {}
@@ -0,0 +1,25 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled          stop claiming a task type while most of its attempts fail
+ * @param window           outcomes older than this no longer count towards the failure rate
+ * @param minimumCalls     outcomes needed in the window before the circuit can open
+ * @param failureThreshold failure rate (0..1) at which the circuit opens
+ * @param openDuration     how long an open circuit blocks claims before probing
+ * @param halfOpenProbes   tasks claimed to probe a recovering type; all must complete
+ *                         to close the circuit, any failure opens it again
+ */
+@ConfigurationProperties("workflow.circuit-breaker")
+public record CircuitBreakerProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("60s") Duration window,
+        @DefaultValue("20") int minimumCalls,
+        @DefaultValue("0.5") double failureThreshold,
+        @DefaultValue("30s") Duration openDuration,
+        @DefaultValue("3") int halfOpenProbes
+) {}
@@ -0,0 +1,19 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param fetchSize JDBC fetch size for export cursors; {@code Integer.MIN_VALUE} makes
+ *                  MySQL Connector/J stream rows one at a time instead of buffering the
+ *                  whole result set. Drivers that reject it (e.g. H2) take a positive size.
+ * @param safetyLag exports stop at rows stamped this long ago: a row's timestamp is taken
+ *                  before its transaction commits, so newer rows may still be missing
+ */
+@ConfigurationProperties("workflow.export")
+public record ExportProperties(
+        @DefaultValue("-2147483648") int fetchSize,
+        @DefaultValue("30s") Duration safetyLag
+) {}
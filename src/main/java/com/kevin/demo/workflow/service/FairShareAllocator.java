@@ -0,0 +1,62 @@
+package com.kevin.demo.workflow.service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Splits each claim batch across the queues that have QUEUED work, in proportion
+ * to their weights (deficit round robin).
+ *
+ * Every call credits each active queue with its weighted share of the batch. Whole
+ * slots are handed out, and the fractional remainder carries over to the next call,
+ * so over time every backlogged queue gets its share even when a batch has fewer
+ * slots than there are queues. A queue that drains loses its credit, so it can't
+ * save up slots while idle.
+ */
+@Component
+public class FairShareAllocator {
+
+    private final QueueProperties properties;
+    private final Map<String, Double> credits = new HashMap<>();
+
+    public FairShareAllocator(QueueProperties properties) {
+        this.properties = properties;
+    }
+
+    // queue -> slots for this batch; the slots add up to `limit`
+    public synchronized Map<String, Integer> allocate(List<String> activeQueues, int limit) {
+        credits.keySet().retainAll(activeQueues);
+
+        Map<String, Integer> quotas = new LinkedHashMap<>();
+        if (activeQueues.isEmpty() || limit <= 0) return quotas;
+
+        double totalWeight = activeQueues.stream().mapToInt(properties::weight).sum();
+
+        int assigned = 0;
+        for (String queue : activeQueues) {
+            double credit = credits.getOrDefault(queue, 0.0)
+                    + limit * properties.weight(queue) / totalWeight;
+            int quota = (int) Math.floor(credit);
+
+            credits.put(queue, credit);
+            quotas.put(queue, quota);
+            assigned += quota;
+        }
+
+        // slots lost to rounding go to the queues owed the most; they carry the debt
+        List<String> owed = activeQueues.stream()
+                .sorted(Comparator.comparingDouble((String q) -> credits.get(q) - quotas.get(q)).reversed())
+                .toList();
+        for (int i = 0; assigned < limit; i++, assigned++) {
+            quotas.merge(owed.get(i % owed.size()), 1, Integer::sum);
+        }
+
+        quotas.forEach((queue, quota) -> credits.merge(queue, (double) -quota, Double::sum));
+        return quotas;
+    }
+}
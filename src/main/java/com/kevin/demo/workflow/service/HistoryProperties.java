@@ -0,0 +1,24 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param mode         {@code SYNC} inserts transitions in the business transaction;
+ *                     {@code ASYNC} appends them to the outbox there and a background
+ *                     writer moves them to the history
+ * @param batchSize    max transitions the writer moves per transaction
+ * @param pollInterval how often the writer looks for outbox rows committed by other
+ *                     nodes; local commits wake it right away
+ */
+@ConfigurationProperties("workflow.history")
+public record HistoryProperties(
+        @DefaultValue("SYNC") Mode mode,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("1s") Duration pollInterval
+) {
+
+    public enum Mode { SYNC, ASYNC }
+}
@@ -0,0 +1,8 @@
+package com.kevin.demo.workflow.service;
+
+public class IdempotencyKeyReuseException extends RuntimeException {
+
+    public IdempotencyKeyReuseException(String scope, String key) {
+        super("Idempotency-Key already used for a different request: scope=" + scope + " key=" + key);
+    }
+}
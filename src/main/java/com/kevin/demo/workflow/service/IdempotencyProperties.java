@@ -0,0 +1,20 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param retention       how long a stored response is replayed; a retry after this
+ *                        runs the request again
+ * @param cleanupInterval how often keys older than {@code retention} are deleted
+ * @param cacheSpec       Caffeine spec of the {@code idempotency-keys} cache; kept apart
+ *                        from the task caches, as only keys retried soon are worth holding
+ */
+@ConfigurationProperties("workflow.idempotency")
+public record IdempotencyProperties(
+        @DefaultValue("24h") Duration retention,
+        @DefaultValue("10m") Duration cleanupInterval,
+        @DefaultValue("maximumSize=1000,expireAfterWrite=5m,recordStats") String cacheSpec
+) {}
@@ -0,0 +1,140 @@
+package com.kevin.demo.workflow.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kevin.demo.workflow.domain.IdempotencyKey;
+import com.kevin.demo.workflow.repository.IdempotencyKeyRepository;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key} and replays the stored
+ * response for retries.
+ *
+ * The key row is inserted in the same transaction as the change, so of several
+ * concurrent requests with one key only the first commits; the others fail on the
+ * unique index, roll their own change back and replay the winner's response. A
+ * loser may fail earlier, on the state the winner left behind (a second complete
+ * finds the task COMPLETED): that conflict is replayed too when the key turns out
+ * to be stored meanwhile. Only
+ * successful responses are stored: a request that failed can be retried with the
+ * same key. Recently seen keys are kept in the {@code idempotency-keys} cache, so
+ * a hot duplicate is answered without a database round trip.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String CACHE = "idempotency-keys";
+    static final int MAX_KEY_LENGTH = 128;
+
+    private record Stored(String fingerprint, String responseBody) {}
+
+    private final IdempotencyKeyRepository keyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonMapper jsonMapper;
+    private final Cache recent;
+
+    public IdempotencyService(IdempotencyKeyRepository keyRepository,
+                              PlatformTransactionManager transactionManager,
+                              JsonMapper jsonMapper,
+                              CacheManager cacheManager) {
+        this.keyRepository = keyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jsonMapper = jsonMapper;
+        this.recent = cacheManager.getCache(CACHE);
+    }
+
+    // runs action, unless `key` was already used for this request in `scope`, in which
+    // case the stored response is returned; a null key just runs the action
+    public <T> T execute(String scope, String key, Object request, Class<T> responseType, Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(key);
+        }
+
+        String cacheKey = scope + ":" + key;
+        String fingerprint = fingerprint(scope, request);
+
+        Stored stored = recent.get(cacheKey, Stored.class);
+        if (stored == null) {
+            stored = keyRepository.findByScopeAndKey(scope, key)
+                    .map(row -> new Stored(row.getFingerprint(), row.getResponseBody()))
+                    .orElse(null);
+        }
+        if (stored != null) {
+            return replay(scope, key, cacheKey, fingerprint, stored, responseType);
+        }
+
+        Stored created;
+        try {
+            created = transactionTemplate.execute(status -> {
+                T response = action.get();
+                String body = jsonMapper.writeValueAsString(response);
+                keyRepository.saveAndFlush(new IdempotencyKey(scope, key, fingerprint, body));
+                return new Stored(fingerprint, body);
+            });
+        } catch (DataIntegrityViolationException | IllegalStateException e) {
+            // a concurrent request with the same key committed first; an IllegalStateException
+            // is only the winner's doing if its key row is there now
+            Stored winner = keyRepository.findByScopeAndKey(scope, key)
+                    .map(row -> new Stored(row.getFingerprint(), row.getResponseBody()))
+                    .orElseThrow(() -> e);
+            return replay(scope, key, cacheKey, fingerprint, winner, responseType);
+        }
+
+        recent.put(cacheKey, created);
+        return jsonMapper.readValue(created.responseBody(), responseType);
+    }
+
+    // deletes up to `limit` keys stored before `cutoff`; returns how many
+    public int deleteExpired(Instant cutoff, int limit) {
+        return transactionTemplate.execute(status -> keyRepository.deleteCreatedBefore(cutoff, limit));
+    }
+
+    private <T> T replay(
+            String scope,
+            String key,
+            String cacheKey,
+            String fingerprint,
+            Stored stored,
+            Class<T> responseType
+    ) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReuseException(scope, key);
+        }
+
+        recent.put(cacheKey, stored);
+        log.debug("idempotent_replay scope={} key={}", scope, key);
+        return jsonMapper.readValue(stored.responseBody(), responseType);
+    }
+
+    private String fingerprint(String scope, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            digest.update(jsonMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
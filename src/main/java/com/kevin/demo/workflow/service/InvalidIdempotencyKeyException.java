@@ -0,0 +1,8 @@
+package com.kevin.demo.workflow.service;
+
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+    public InvalidIdempotencyKeyException(String key) {
+        super("Invalid Idempotency-Key (1-" + IdempotencyService.MAX_KEY_LENGTH + " characters): " + key);
+    }
+}
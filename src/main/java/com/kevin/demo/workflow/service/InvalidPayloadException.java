@@ -0,0 +1,8 @@
+package com.kevin.demo.workflow.service;
+
+public class InvalidPayloadException extends RuntimeException {
+
+    public InvalidPayloadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
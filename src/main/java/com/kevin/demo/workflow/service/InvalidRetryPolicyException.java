@@ -0,0 +1,8 @@
+package com.kevin.demo.workflow.service;
+
+public class InvalidRetryPolicyException extends RuntimeException {
+
+    public InvalidRetryPolicyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.kevin.demo.workflow.service;
+
+public class InvalidTemplateException extends RuntimeException {
+
+    public InvalidTemplateException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
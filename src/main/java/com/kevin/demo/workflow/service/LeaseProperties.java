@@ -0,0 +1,20 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param duration          how long a claim stays valid without a heartbeat; a dead
+ *                          worker's tasks are retried this long after its last heartbeat
+ * @param heartbeatInterval how often this node renews the leases of its in-flight tasks;
+ *                          keep it well under {@code duration}
+ * @param reapInterval      how often expired leases are looked for
+ */
+@ConfigurationProperties("workflow.lease")
+public record LeaseProperties(
+        @DefaultValue("30s") Duration duration,
+        @DefaultValue("10s") Duration heartbeatInterval,
+        @DefaultValue("5s") Duration reapInterval
+) {}
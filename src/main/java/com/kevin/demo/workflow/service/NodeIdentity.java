@@ -0,0 +1,51 @@
+package com.kevin.demo.workflow.service;
+
+import java.net.InetAddress;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Name this node claims tasks under ({@code workflow.node-id}). Defaults to the host
+ * name plus a random suffix, so a restarted process never inherits the leases of
+ * its previous incarnation.
+ */
+@Component
+public class NodeIdentity {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(NodeIdentity.class);
+
+    // lease_owner column length
+    static final int MAX_LENGTH = 64;
+
+    private final String id;
+
+    public NodeIdentity(@Value("${workflow.node-id:}") String configured) {
+        this.id = configured.isBlank() ? generate() : configured;
+        if (id.length() > MAX_LENGTH) {
+            throw new IllegalStateException("workflow.node-id longer than " + MAX_LENGTH + ": " + id);
+        }
+        log.info("node_identity id={}", id);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    private static String generate() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        if (host.length() > MAX_LENGTH - 7) {
+            host = host.substring(0, MAX_LENGTH - 7);
+        }
+        return host + "-" + Integer.toHexString(ThreadLocalRandom.current().nextInt(0x100000, 0x1000000));
+    }
+}
@@ -0,0 +1,76 @@
+package com.kevin.demo.workflow.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.domain.TaskPayload;
+
+/**
+ * File store for payload bodies too large for a database row. Every write gets a
+ * new key, so a body is never overwritten in place: readers of the old row keep
+ * reading the old file until it is deleted after the replacing row commits.
+ */
+@Component
+public class PayloadBlobStore {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(PayloadBlobStore.class);
+
+    private final Path root;
+
+    public PayloadBlobStore(PayloadProperties properties) {
+        this.root = properties.blobDir().toAbsolutePath().normalize();
+    }
+
+    // a fresh key for a body of the task; spread over one directory per shard
+    public String newKey(Long taskId, TaskPayload.Kind kind) {
+        return "%02d/%d-%s-%s".formatted(
+                Task.shardOf(taskId), taskId, kind.name().toLowerCase(), UUID.randomUUID());
+    }
+
+    public OutputStream create(String key) throws IOException {
+        Path path = resolve(key);
+        Files.createDirectories(path.getParent());
+        return Files.newOutputStream(path);
+    }
+
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    public long size(String key) throws IOException {
+        return Files.size(resolve(key));
+    }
+
+    // best effort: an orphaned file only costs disk space
+    public void delete(String key) {
+        if (key == null) return;
+        try {
+            Files.deleteIfExists(resolve(key));
+        } catch (IOException e) {
+            log.warn("payload_blob_delete_failed key={} error={}", key, e.toString());
+        }
+    }
+
+    public void deleteAll(Collection<String> keys) {
+        keys.forEach(this::delete);
+    }
+
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,25 @@
+package com.kevin.demo.workflow.service;
+
+import java.nio.file.Path;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @param maxSize           largest payload or result accepted; larger uploads get 413
+ * @param compressThreshold bodies from this size on are zstd-compressed (kept raw if
+ *                          that does not make them smaller)
+ * @param offloadThreshold  bodies above this size go to the blob store instead of the row
+ * @param compressionLevel  zstd level; 3 is zstd's default speed/ratio trade-off
+ * @param blobDir           root of the file blob store; must be shared storage when
+ *                          several nodes serve the API
+ */
+@ConfigurationProperties("workflow.payload")
+public record PayloadProperties(
+        @DefaultValue("256MB") DataSize maxSize,
+        @DefaultValue("1KB") DataSize compressThreshold,
+        @DefaultValue("1MB") DataSize offloadThreshold,
+        @DefaultValue("3") int compressionLevel,
+        @DefaultValue("data/blobs") Path blobDir
+) {}
@@ -0,0 +1,8 @@
+package com.kevin.demo.workflow.service;
+
+public class PayloadTooLargeException extends RuntimeException {
+
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
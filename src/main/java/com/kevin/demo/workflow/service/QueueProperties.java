@@ -0,0 +1,23 @@
+package com.kevin.demo.workflow.service;
+
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @param weights relative claim share per queue ({@code workflow.queues.weights.<queue>=3});
+ *                queues not listed have weight 1
+ */
+@ConfigurationProperties("workflow.queues")
+public record QueueProperties(
+        Map<String, Integer> weights
+) {
+
+    public QueueProperties {
+        weights = weights == null ? Map.of() : Map.copyOf(weights);
+    }
+
+    public int weight(String queue) {
+        return Math.max(1, weights.getOrDefault(queue, 1));
+    }
+}
@@ -0,0 +1,63 @@
+package com.kevin.demo.workflow.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.kevin.demo.workflow.domain.Task;
+
+/**
+ * Resolves the retry policy of a task (see {@link RetryProperties}): the one named at
+ * creation, else its task type's, else the default. Only an explicit name is stored
+ * on the task, so a type's policy can be changed for tasks already in flight; the
+ * attempt budget is fixed at creation.
+ */
+@Component
+public class RetryPolicies {
+
+    private final Map<String, RetryProperties.Policy> policies;
+    private final Map<String, String> taskTypes;
+    private final RetryProperties.Policy defaultPolicy;
+
+    public RetryPolicies(RetryProperties properties) {
+        Map<String, RetryProperties.Policy> all = new HashMap<>(properties.policies());
+        all.putIfAbsent(RetryProperties.DEFAULT_POLICY, RetryProperties.Policy.defaults());
+        this.policies = Map.copyOf(all);
+        this.taskTypes = properties.taskTypes();
+
+        // a typo in the config should stop the node, not dead-letter tasks later
+        this.defaultPolicy = policies.get(properties.defaultPolicy());
+        if (defaultPolicy == null) {
+            throw new IllegalStateException("Unknown retry policy: workflow.retry.default-policy="
+                    + properties.defaultPolicy());
+        }
+        taskTypes.forEach((type, name) -> {
+            if (!policies.containsKey(name)) {
+                throw new IllegalStateException("Unknown retry policy: workflow.retry.task-types."
+                        + type + "=" + name);
+            }
+        });
+    }
+
+    public RetryProperties.Policy forTask(Task task) {
+        if (task.getRetryPolicy() != null) {
+            RetryProperties.Policy policy = policies.get(task.getRetryPolicy());
+            // dropped from the config since the task was created
+            if (policy != null) return policy;
+        }
+        String name = taskTypes.get(task.getTaskType());
+        return name != null ? policies.get(name) : defaultPolicy;
+    }
+
+    // checks the policy named on a new task and takes the attempt budget from its policy
+    // unless the task set one
+    public void prepare(Task task) {
+        if (task.getRetryPolicy() != null && !policies.containsKey(task.getRetryPolicy())) {
+            throw new InvalidRetryPolicyException("Unknown retry policy: " + task.getRetryPolicy());
+        }
+        if (task.getMaxAttempts() <= 0) {
+            task.setMaxAttempts(forTask(task).maxAttempts());
+        }
+    }
+}
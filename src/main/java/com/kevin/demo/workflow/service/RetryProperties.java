@@ -0,0 +1,125 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param defaultPolicy policy for tasks that name none and whose type has none
+ * @param policies      named retry policies ({@code workflow.retry.policies.<name>.backoff=exponential});
+ *                      {@value #DEFAULT_POLICY} is built in unless overridden
+ * @param taskTypes     policy per task type ({@code workflow.retry.task-types.<type>=<policy>})
+ */
+@ConfigurationProperties("workflow.retry")
+public record RetryProperties(
+        @DefaultValue(DEFAULT_POLICY) String defaultPolicy,
+        Map<String, Policy> policies,
+        Map<String, String> taskTypes
+) {
+
+    public static final String DEFAULT_POLICY = "default";
+
+    public RetryProperties {
+        policies = policies == null ? Map.of() : Map.copyOf(policies);
+        taskTypes = taskTypes == null ? Map.of() : Map.copyOf(taskTypes);
+    }
+
+    public enum Backoff {
+        // initialDelay every time
+        FIXED,
+        // initialDelay times the attempt number
+        LINEAR,
+        // initialDelay times multiplier^(attempt - 1)
+        EXPONENTIAL,
+        // random between initialDelay and the previous delay times multiplier; spreads
+        // a burst of failures the most, as no two tasks follow the same schedule
+        DECORRELATED_JITTER
+    }
+
+    /**
+     * @param backoff      how the delay grows with the attempt number
+     * @param initialDelay delay before the first retry
+     * @param maxDelay     no retry is put off longer than this
+     * @param multiplier   growth factor of EXPONENTIAL and DECORRELATED_JITTER
+     * @param jitter       fraction of the delay taken off at random (0.2: 80-100% of it), so
+     *                     tasks that failed together do not retry together
+     * @param maxAttempts  attempts of a task created with this policy, the first included
+     * @param retryOn      error classes (simple or qualified names) worth retrying; empty
+     *                     retries any error
+     * @param abortOn      error classes that go to DEAD_LETTER right away
+     */
+    public record Policy(
+            @DefaultValue("LINEAR") Backoff backoff,
+            @DefaultValue("15s") Duration initialDelay,
+            @DefaultValue("180s") Duration maxDelay,
+            @DefaultValue("2.0") double multiplier,
+            @DefaultValue("0.2") double jitter,
+            @DefaultValue("5") int maxAttempts,
+            List<String> retryOn,
+            List<String> abortOn
+    ) {
+
+        public Policy {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be at least 1");
+            }
+            jitter = Math.min(1.0, Math.max(0.0, jitter));
+            multiplier = Math.max(1.0, multiplier);
+            retryOn = retryOn == null ? List.of() : List.copyOf(retryOn);
+            abortOn = abortOn == null ? List.of() : List.copyOf(abortOn);
+        }
+
+        // used when no "default" policy is configured
+        static Policy defaults() {
+            return new Policy(
+                    Backoff.LINEAR, Duration.ofSeconds(15), Duration.ofSeconds(180), 2.0, 0.2, 5, null, null
+            );
+        }
+
+        // an error without a class (reported by a worker that did not send one) is retried
+        public boolean retries(String errorClass) {
+            if (errorClass == null) return true;
+            if (matches(abortOn, errorClass)) return false;
+            return retryOn.isEmpty() || matches(retryOn, errorClass);
+        }
+
+        // only abortOn applies; used for lease timeouts, which are retried unless listed there
+        public boolean aborts(String errorClass) {
+            return matches(abortOn, errorClass);
+        }
+
+        // delay before the retry that follows failed attempt `attempt` (1-based);
+        // `previous` is the delay before the last retry, null on the first failure
+        public Duration delay(int attempt, Duration previous) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double initial = initialDelay.toMillis();
+            double max = maxDelay.toMillis();
+
+            double millis = switch (backoff) {
+                case FIXED -> initial;
+                case LINEAR -> initial * attempt;
+                case EXPONENTIAL -> initial * Math.pow(multiplier, attempt - 1);
+                case DECORRELATED_JITTER -> {
+                    double upper = (previous != null ? previous.toMillis() : initial) * multiplier;
+                    yield upper > initial ? random.nextDouble(initial, upper) : initial;
+                }
+            };
+            millis = Math.min(millis, max);
+            if (backoff != Backoff.DECORRELATED_JITTER && jitter > 0) {
+                millis -= millis * jitter * random.nextDouble();
+            }
+            return Duration.ofMillis((long) millis);
+        }
+
+        private static boolean matches(List<String> names, String errorClass) {
+            for (String name : names) {
+                if (errorClass.equals(name) || errorClass.endsWith("." + name)) return true;
+            }
+            return false;
+        }
+    }
+}
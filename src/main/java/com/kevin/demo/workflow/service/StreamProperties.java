@@ -0,0 +1,32 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param maxSubscribers cap on open status streams per node; more are refused with 503
+ * @param bufferSize     changes buffered per subscriber; a subscriber that falls this far
+ *                       behind is sent an overflow event and disconnected
+ * @param senderThreads  threads writing buffered changes to subscribers
+ * @param sendTimeout    a subscriber whose write has not returned after this long is
+ *                       disconnected as if it overflowed; a spare sender thread covers for
+ *                       the blocked one until the write returns or the container times it out
+ * @param timeout        a stream is closed after this long; clients reconnect
+ * @param heartbeat      idle streams get a comment line this often, so dead clients are noticed
+ * @param pollInterval   how often changes committed on other nodes are picked up from the
+ *                       updated_at index, while anyone is subscribed
+ * @param pollOverlap    each poll re-reads this far back, for rows that committed late
+ */
+@ConfigurationProperties("workflow.stream")
+public record StreamProperties(
+        @DefaultValue("10000") int maxSubscribers,
+        @DefaultValue("1024") int bufferSize,
+        @DefaultValue("4") int senderThreads,
+        @DefaultValue("10s") Duration sendTimeout,
+        @DefaultValue("30m") Duration timeout,
+        @DefaultValue("15s") Duration heartbeat,
+        @DefaultValue("1s") Duration pollInterval,
+        @DefaultValue("5s") Duration pollOverlap
+) {}
@@ -0,0 +1,9 @@
+package com.kevin.demo.workflow.service;
+
+// a status stream could not be opened on this node right now; the client should retry
+public class StreamUnavailableException extends RuntimeException {
+
+    public StreamUnavailableException(String message) {
+        super(message);
+    }
+}
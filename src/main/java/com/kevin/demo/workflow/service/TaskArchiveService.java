@@ -0,0 +1,90 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kevin.demo.workflow.domain.TaskState;
+import com.kevin.demo.workflow.repository.TaskDependencyRepository;
+import com.kevin.demo.workflow.repository.TaskRepository;
+import com.kevin.demo.workflow.repository.TaskTransitionRepository;
+
+/**
+ * Moves terminal tasks and their transition history into {@code tasks_archive} and
+ * {@code task_transitions_archive}.
+ *
+ * Each batch is its own short transaction: lock up to batchSize old terminal tasks
+ * (SKIP LOCKED), copy them and their transitions with INSERT ... SELECT, then
+ * delete by primary key. The hot tables stay bounded by the retention window, so
+ * the scheduler's index scans do not slow down as the service ages.
+ */
+@Service
+public class TaskArchiveService {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TaskArchiveService.class);
+
+    public static final List<TaskState> ARCHIVED_STATES = List.of(TaskState.COMPLETED, TaskState.DEAD_LETTER);
+
+    private final TaskRepository taskRepository;
+    private final TaskTransitionRepository transitionRepository;
+    private final TaskDependencyRepository dependencyRepository;
+    private final TaskPayloadService payloadService;
+    private final TaskService taskService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public TaskArchiveService(TaskRepository taskRepository,
+                              TaskTransitionRepository transitionRepository,
+                              TaskDependencyRepository dependencyRepository,
+                              TaskPayloadService payloadService,
+                              TaskService taskService,
+                              ApplicationEventPublisher eventPublisher) {
+        this.taskRepository = taskRepository;
+        this.transitionRepository = transitionRepository;
+        this.dependencyRepository = dependencyRepository;
+        this.payloadService = payloadService;
+        this.taskService = taskService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // archives up to `limit` tasks in `state` last updated before `cutoff`; returns how many
+    @Transactional
+    public int archiveBatch(TaskState state, Instant cutoff, int limit) {
+        List<Long> ids = taskRepository.lockArchivable(state.name(), cutoff, limit);
+        if (ids.isEmpty()) return 0;
+
+        Instant now = Instant.now();
+
+        // tasks still waiting on a dead-lettered parent (left CREATED by older versions)
+        // would wait forever once its edges are gone
+        if (state == TaskState.DEAD_LETTER) {
+            taskService.deadLetterDependents(ids);
+        }
+
+        // children first: transitions, edges and payloads reference the task rows;
+        // payloads and results are not archived
+        int transitions = transitionRepository.copyToArchive(ids, now);
+        transitionRepository.deleteByTaskIds(ids);
+        dependencyRepository.deleteByTaskIds(ids);
+        payloadService.deleteForTasks(ids);
+        taskRepository.copyToArchive(ids, now);
+        taskRepository.deleteByIds(ids);
+
+        eventPublisher.publishEvent(new TasksArchivedEvent(ids));
+
+        log.debug("archive_batch state={} tasks={} transitions={}", state, ids.size(), transitions);
+        return ids.size();
+    }
+
+    // deletes up to `limit` archived tasks and transitions archived before `cutoff`
+    @Transactional
+    public int purgeBatch(Instant cutoff, int limit) {
+        return transitionRepository.purgeArchive(cutoff, limit)
+                + taskRepository.purgeArchive(cutoff, limit);
+    }
+}
@@ -0,0 +1,32 @@
+package com.kevin.demo.workflow.service;
+
+import org.springframework.boot.cache.autoconfigure.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Read-through caches for task status and history polling. Sizes and TTL come from
+ * {@code spring.cache.caffeine.spec}; entries are evicted by {@link TaskCacheInvalidator}.
+ * The {@code idempotency-keys} cache has its own spec
+ * ({@code workflow.idempotency.cache-spec}), so a burst of keyed requests cannot
+ * push task entries out, nor the other way round.
+ */
+@Configuration
+// outside the transaction advisor, so a hit never opens a transaction or takes a connection
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class TaskCacheConfig {
+
+    public static final String TASKS = "tasks";
+    public static final String TASK_TRANSITIONS = "task-transitions";
+
+    @Bean
+    CacheManagerCustomizer<CaffeineCacheManager> idempotencyCache(IdempotencyProperties properties) {
+        return cacheManager -> cacheManager.registerCustomCache(
+                IdempotencyService.CACHE, Caffeine.from(properties.cacheSpec()).build());
+    }
+}
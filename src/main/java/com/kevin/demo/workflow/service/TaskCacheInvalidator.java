@@ -0,0 +1,107 @@
+package com.kevin.demo.workflow.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.domain.TaskTransition;
+
+/**
+ * Evicts cached task reads once a change is visible to other transactions.
+ *
+ * Every state change, including the bulk UPDATE claim and timeout paths, publishes a
+ * {@link TaskTransitionEvent}, and bulk updates of other fields (lease renewals,
+ * dependency counters) a {@link TasksUpdatedEvent}, so listening after commit covers
+ * all of them. With the async history writer the transition rows land later; the
+ * writer evicts the history again after each move.
+ *
+ * Misses are loaded through here too. A read that started before a commit can finish
+ * after its eviction and would put the old value back for the whole TTL, so every
+ * eviction bumps a counter (one per stripe of task ids) and a load that sees its
+ * stripe's counter move while it ran evicts what it just put.
+ *
+ * The caches are per node and so is this invalidation: a change committed on another
+ * node is not seen here until the entry expires (the TTL in
+ * {@code spring.cache.caffeine.spec}). Reads that must not be stale bypass the cache.
+ */
+@Component
+public class TaskCacheInvalidator {
+
+    // power of two; a collision only costs the colliding load its cache entry
+    private static final int STRIPES = 1024;
+
+    private final Cache tasks;
+    private final Cache transitions;
+
+    private final AtomicLongArray evictions = new AtomicLongArray(STRIPES);
+
+    public TaskCacheInvalidator(CacheManager cacheManager) {
+        this.tasks = cacheManager.getCache(TaskCacheConfig.TASKS);
+        this.transitions = cacheManager.getCache(TaskCacheConfig.TASK_TRANSITIONS);
+    }
+
+    public Task getTask(Long taskId, Supplier<Task> loader) {
+        return get(tasks, taskId, loader);
+    }
+
+    public List<TaskTransition> getTransitions(Long taskId, Supplier<List<TaskTransition>> loader) {
+        return get(transitions, taskId, loader);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TaskTransitionEvent event) {
+        evict(tasks, event.taskId());
+        evict(transitions, event.taskId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUpdated(TasksUpdatedEvent event) {
+        event.taskIds().forEach(taskId -> evict(tasks, taskId));
+    }
+
+    @TransactionalEventListener
+    public void onArchived(TasksArchivedEvent event) {
+        for (Long taskId : event.taskIds()) {
+            evict(tasks, taskId);
+            evict(transitions, taskId);
+        }
+    }
+
+    public void evictTransitions(Collection<Long> taskIds) {
+        taskIds.forEach(taskId -> evict(transitions, taskId));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Cache cache, Long taskId, Supplier<T> loader) {
+        Cache.ValueWrapper cached = cache.get(taskId);
+        if (cached != null) return (T) cached.get();
+
+        int stripe = stripe(taskId);
+        long seen = evictions.get(stripe);
+        T value = loader.get();
+
+        // put first, check second: an eviction racing the check either bumped the
+        // counter before it or removes the entry after it
+        cache.put(taskId, value);
+        if (evictions.get(stripe) != seen) {
+            cache.evict(taskId);
+        }
+        return value;
+    }
+
+    private void evict(Cache cache, Long taskId) {
+        evictions.incrementAndGet(stripe(taskId));
+        cache.evict(taskId);
+    }
+
+    private static int stripe(Long taskId) {
+        return Long.hashCode(taskId) & (STRIPES - 1);
+    }
+}
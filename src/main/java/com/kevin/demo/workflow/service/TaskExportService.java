@@ -0,0 +1,199 @@
+package com.kevin.demo.workflow.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.SelectionQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.domain.TaskState;
+import com.kevin.demo.workflow.repository.TaskTransitionOutboxRepository;
+
+import jakarta.persistence.EntityManager;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Writes tasks and transitions as NDJSON straight from a forward-only cursor.
+ *
+ * Rows are serialized as they are read and detached right after, so neither the
+ * persistence context nor the driver (see {@link ExportProperties#fetchSize()})
+ * holds more than the current row, whatever the table size.
+ *
+ * Timestamps are taken before a row commits, so a row can become visible after rows
+ * with later timestamps. An export therefore only goes up to a watermark that every
+ * row stamped before it is known to have committed by: now minus
+ * {@link ExportProperties#safetyLag()}, and for transitions also before the oldest one
+ * still waiting in the history outbox. The next incremental run starts from it.
+ */
+@Service
+public class TaskExportService {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TaskExportService.class);
+
+    private final EntityManager entityManager;
+    private final JsonMapper jsonMapper;
+    private final ExportProperties properties;
+    private final TaskTransitionOutboxRepository outboxRepository;
+
+    public TaskExportService(EntityManager entityManager,
+                             JsonMapper jsonMapper,
+                             ExportProperties properties,
+                             TaskTransitionOutboxRepository outboxRepository) {
+        this.entityManager = entityManager;
+        this.jsonMapper = jsonMapper;
+        this.properties = properties;
+        this.outboxRepository = outboxRepository;
+    }
+
+    public record TaskRecord(
+            Long id,
+            String title,
+            String description,
+            TaskState state,
+            int priority,
+            String queue,
+            String taskType,
+            int attemptCount,
+            int maxAttempts,
+            String lastError,
+            Instant nextAttemptAt,
+            Instant runAt,
+            Instant createdAt,
+            Instant updatedAt
+    ) {}
+
+    public record TransitionRecord(
+            Long id,
+            Long taskId,
+            TaskState fromState,
+            TaskState toState,
+            String event,
+            String message,
+            Instant createdAt
+    ) {}
+
+    // upper bound for a task export starting now; never before updatedAfter
+    public Instant taskWatermark(Instant updatedAfter) {
+        return notBefore(Instant.now().minus(properties.safetyLag()), updatedAfter);
+    }
+
+    // upper bound for a transition export starting now: transitions still in the outbox
+    // keep their earlier createdAt, so the bound stays below the oldest of them
+    @Transactional(readOnly = true)
+    public Instant transitionWatermark(Instant createdAfter) {
+        Instant until = Instant.now().minus(properties.safetyLag());
+        Instant oldestPending = outboxRepository.findOldestPendingCreatedAt();
+        if (oldestPending != null && !oldestPending.isAfter(until)) {
+            // timestamps have microsecond precision
+            until = oldestPending.minus(1, ChronoUnit.MICROS);
+        }
+        return notBefore(until, createdAfter);
+    }
+
+    private static Instant notBefore(Instant until, Instant after) {
+        return after != null && after.isAfter(until) ? after : until;
+    }
+
+    // tasks with updatedAt after updatedAfter (all when null) and up to `until`, oldest first
+    @Transactional(readOnly = true)
+    public long exportTasks(Instant updatedAfter, Instant until, OutputStream out) {
+        Session session = entityManager.unwrap(Session.class);
+
+        SelectionQuery<Task> query = session.createSelectionQuery(
+                "from Task t where t.updatedAt <= :until"
+                        + (updatedAfter != null ? " and t.updatedAt > :updatedAfter" : "")
+                        + " order by t.updatedAt, t.id",
+                Task.class
+        );
+        query.setParameter("until", until);
+        if (updatedAfter != null) {
+            query.setParameter("updatedAfter", updatedAfter);
+        }
+
+        long count = 0;
+        try (ScrollableResults<Task> rows = scroll(query)) {
+            while (rows.next()) {
+                Task task = rows.get();
+                writeLine(out, new TaskRecord(
+                        task.getId(),
+                        task.getTitle(),
+                        task.getDescription(),
+                        task.getState(),
+                        task.getPriority(),
+                        task.getQueue(),
+                        task.getTaskType(),
+                        task.getAttemptCount(),
+                        task.getMaxAttempts(),
+                        task.getLastError(),
+                        task.getNextAttemptAt(),
+                        task.getRunAt(),
+                        task.getCreatedAt(),
+                        task.getUpdatedAt()
+                ));
+                session.detach(task);
+                count++;
+            }
+        }
+
+        log.info("export_tasks rows={} updatedAfter={} until={}", count, updatedAfter, until);
+        return count;
+    }
+
+    // transitions with createdAt after createdAfter (all when null) and up to `until`, oldest first
+    @Transactional(readOnly = true)
+    public long exportTransitions(Instant createdAfter, Instant until, OutputStream out) {
+        Session session = entityManager.unwrap(Session.class);
+
+        // scalar projection: no entities to track and no lazy task proxies to resolve
+        SelectionQuery<TransitionRecord> query = session.createSelectionQuery(
+                "select t.id, t.task.id, t.fromState, t.toState, t.event, t.message, t.createdAt"
+                        + " from TaskTransition t where t.createdAt <= :until"
+                        + (createdAfter != null ? " and t.createdAt > :createdAfter" : "")
+                        + " order by t.createdAt, t.id",
+                TransitionRecord.class
+        );
+        query.setParameter("until", until);
+        if (createdAfter != null) {
+            query.setParameter("createdAfter", createdAfter);
+        }
+
+        long count = 0;
+        try (ScrollableResults<TransitionRecord> rows = scroll(query)) {
+            while (rows.next()) {
+                writeLine(out, rows.get());
+                count++;
+            }
+        }
+
+        log.info("export_transitions rows={} createdAfter={} until={}", count, createdAfter, until);
+        return count;
+    }
+
+    private <T> ScrollableResults<T> scroll(SelectionQuery<T> query) {
+        return query
+                .setReadOnly(true)
+                .setFetchSize(properties.fetchSize())
+                .scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    private void writeLine(OutputStream out, Object row) {
+        try {
+            out.write(jsonMapper.writeValueAsBytes(row));
+            out.write('\n');
+        } catch (IOException e) {
+            // client went away; abort the cursor instead of reading the rest of the table
+            throw new UncheckedIOException(e);
+        }
+    }
+}
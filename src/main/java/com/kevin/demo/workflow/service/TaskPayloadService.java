@@ -0,0 +1,268 @@
+package com.kevin.demo.workflow.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeTypeUtils;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.domain.TaskPayload;
+import com.kevin.demo.workflow.domain.TaskState;
+import com.kevin.demo.workflow.repository.TaskPayloadRepository;
+import com.kevin.demo.workflow.repository.TaskRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Payload and result bodies of tasks (see {@link TaskPayload}).
+ *
+ * Uploads are streamed: the first offloadThreshold bytes are buffered, and a body
+ * that fits is stored in its row, zstd-compressed from compressThreshold on. A
+ * larger one is compressed straight into a new blob store file while it is read.
+ * The row is written afterwards in a short transaction that locks the task, so a
+ * slow upload never holds a database connection. A replaced blob is deleted once
+ * the new row has committed; a blob whose row did not commit is deleted right away.
+ *
+ * The payload can be set until the task is claimed; the result only while it is
+ * PROCESSING, by the lease holder when one is given.
+ */
+@Service
+public class TaskPayloadService {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TaskPayloadService.class);
+
+    public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private static final int MAX_CONTENT_TYPE_LENGTH = 128;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final Set<TaskState> PAYLOAD_STATES =
+            EnumSet.of(TaskState.CREATED, TaskState.SCHEDULED, TaskState.QUEUED);
+
+    private final TaskPayloadRepository payloadRepository;
+    private final TaskRepository taskRepository;
+    private final PayloadBlobStore blobStore;
+    private final PayloadProperties properties;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readTemplate;
+
+    public TaskPayloadService(TaskPayloadRepository payloadRepository,
+                              TaskRepository taskRepository,
+                              PayloadBlobStore blobStore,
+                              PayloadProperties properties,
+                              EntityManager entityManager,
+                              PlatformTransactionManager transactionManager) {
+        this.payloadRepository = payloadRepository;
+        this.taskRepository = taskRepository;
+        this.blobStore = blobStore;
+        this.properties = properties;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+    }
+
+    // stores `body` as the task's payload or result, replacing any previous one;
+    // `owner` is checked against the lease of a RESULT write, null skips the check
+    public TaskPayload write(Long taskId,
+                                 TaskPayload.Kind kind,
+                                 String contentType,
+                                 InputStream body,
+                                 String owner) throws IOException {
+        String type = contentType(contentType);
+
+        // fail fast instead of after reading the body; checked again under the lock
+        requireWritable(find(taskId), kind, owner);
+
+        TaskPayload payload = store(taskId, kind, type, body);
+        String replaced;
+        try {
+            replaced = transactionTemplate.execute(status -> {
+                requireWritable(
+                        taskRepository.lockById(taskId)
+                                .orElseThrow(() -> new IllegalArgumentException("Task not found: " + taskId)),
+                        kind,
+                        owner
+                );
+                String previous = payloadRepository.findBlobKey(taskId, kind).orElse(null);
+                payloadRepository.deleteByKey(taskId, kind);
+                entityManager.persist(payload);
+                return previous;
+            });
+        } catch (RuntimeException e) {
+            blobStore.delete(payload.getBlobKey());
+            throw e;
+        }
+        blobStore.delete(replaced);
+
+        log.debug("task_payload_stored taskId={} kind={} size={} storedSize={} encoding={} offloaded={}",
+                taskId, kind, payload.getSize(), payload.getStoredSize(), payload.getEncoding(),
+                payload.getBlobKey() != null);
+        return payload;
+    }
+
+    // opens the decoded body for reading; the caller closes it. A blob is opened
+    // here, so a concurrent replace cannot delete it from under the reader
+    public Body open(Long taskId, TaskPayload.Kind kind) throws IOException {
+        TaskPayload payload = readTemplate.execute(status -> payloadRepository.findById(new TaskPayload.Key(taskId, kind)))
+                .orElseThrow(() -> notFound(taskId, kind));
+
+        InputStream stored = payload.getBlobKey() != null
+                ? blobStore.open(payload.getBlobKey())
+                : new ByteArrayInputStream(payload.getData());
+        InputStream decoded = payload.getEncoding() == TaskPayload.Encoding.ZSTD
+                ? new ZstdInputStream(stored)
+                : stored;
+        return new Body(payload, decoded);
+    }
+
+    // drops the bodies of tasks about to be deleted; blobs go once the caller commits
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteForTasks(Collection<Long> taskIds) {
+        List<String> blobKeys = payloadRepository.findBlobKeys(taskIds);
+        payloadRepository.deleteByTaskIds(taskIds);
+        if (blobKeys.isEmpty()) return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                blobStore.deleteAll(blobKeys);
+            }
+        });
+    }
+
+    private TaskPayload store(Long taskId, TaskPayload.Kind kind, String contentType, InputStream body)
+            throws IOException {
+        long maxSize = properties.maxSize().toBytes();
+        int offloadThreshold = (int) Math.min(properties.offloadThreshold().toBytes(), maxSize);
+
+        byte[] head = body.readNBytes(offloadThreshold + 1);
+        if (head.length <= offloadThreshold) {
+            if (head.length >= properties.compressThreshold().toBytes()) {
+                byte[] packed = Zstd.compress(head, properties.compressionLevel());
+                // incompressible bodies (images, archives) are kept as they are
+                if (packed.length < head.length) {
+                    return new TaskPayload(taskId, kind, contentType, TaskPayload.Encoding.ZSTD,
+                            head.length, packed.length, packed, null);
+                }
+            }
+            return new TaskPayload(taskId, kind, contentType, TaskPayload.Encoding.IDENTITY,
+                    head.length, head.length, head, null);
+        }
+
+        if (head.length > maxSize) {
+            throw new PayloadTooLargeException("Body larger than " + maxSize + " bytes");
+        }
+
+        String blobKey = blobStore.newKey(taskId, kind);
+        long size;
+        try {
+            try (OutputStream out = new ZstdOutputStream(
+                    new BufferedOutputStream(blobStore.create(blobKey), COPY_BUFFER_SIZE),
+                    properties.compressionLevel())) {
+                out.write(head);
+                size = head.length + copy(body, out, maxSize - head.length, maxSize);
+            }
+            return new TaskPayload(taskId, kind, contentType, TaskPayload.Encoding.ZSTD,
+                    size, blobStore.size(blobKey), null, blobKey);
+        } catch (IOException | RuntimeException e) {
+            blobStore.delete(blobKey);
+            throw e;
+        }
+    }
+
+    private static long copy(InputStream in, OutputStream out, long limit, long maxSize) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long copied = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            copied += read;
+            if (copied > limit) {
+                throw new PayloadTooLargeException("Body larger than " + maxSize + " bytes");
+            }
+            out.write(buffer, 0, read);
+        }
+        return copied;
+    }
+
+    private static String contentType(String contentType) {
+        if (contentType == null || contentType.isBlank()) return DEFAULT_CONTENT_TYPE;
+        if (contentType.length() > MAX_CONTENT_TYPE_LENGTH) {
+            throw new InvalidPayloadException(
+                    "Content type longer than " + MAX_CONTENT_TYPE_LENGTH + " characters", null);
+        }
+        try {
+            return MimeTypeUtils.parseMimeType(contentType).toString();
+        } catch (InvalidMimeTypeException e) {
+            throw new InvalidPayloadException("Invalid content type: " + contentType, e);
+        }
+    }
+
+    private static void requireWritable(Task task, TaskPayload.Kind kind, String owner) {
+        if (kind == TaskPayload.Kind.PAYLOAD) {
+            if (!PAYLOAD_STATES.contains(task.getState())) {
+                throw new IllegalStateException(
+                        "Payload is fixed once the task is claimed: taskId=" + task.getId()
+                                + " state=" + task.getState());
+            }
+            return;
+        }
+        if (task.getState() != TaskState.PROCESSING) {
+            throw new IllegalStateException(
+                    "Result can only be stored while PROCESSING: taskId=" + task.getId()
+                            + " state=" + task.getState());
+        }
+        if (owner != null && !owner.equals(task.getLeaseOwner())) {
+            throw new IllegalStateException(
+                    "Lease not held: action=RESULT" +
+                    " owner=" + owner +
+                    " leaseOwner=" + task.getLeaseOwner() +
+                    " taskId=" + task.getId()
+            );
+        }
+    }
+
+    private Task find(Long taskId) {
+        return readTemplate.execute(status -> taskRepository.findById(taskId))
+                .orElseThrow(() -> new IllegalArgumentException("Task not found: " + taskId));
+    }
+
+    private static IllegalArgumentException notFound(Long taskId, TaskPayload.Kind kind) {
+        return new IllegalArgumentException(
+                "No " + kind.name().toLowerCase() + " stored for task: " + taskId);
+    }
+
+    /**
+     * A decoded body and what is known about it. Closing it closes the stream.
+     */
+    public record Body(TaskPayload payload, InputStream stream) implements Closeable {
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+}
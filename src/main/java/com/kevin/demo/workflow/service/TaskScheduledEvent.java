@@ -0,0 +1,12 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Instant;
+
+/**
+ * Published by {@link TaskService} when a task enters SCHEDULED, so the local timer
+ * wheel can pick it up without waiting for its next reload.
+ */
+public record TaskScheduledEvent(
+        Long taskId,
+        Instant runAt
+) {}
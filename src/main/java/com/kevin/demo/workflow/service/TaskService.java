@@ -1,182 +1,744 @@
 package com.kevin.demo.workflow.service;
 
+import java.time.Duration;
 import java.time.Instant;
-
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.domain.TaskDependency;
 import com.kevin.demo.workflow.domain.TaskState;
 import com.kevin.demo.workflow.domain.TaskTransition;
+import com.kevin.demo.workflow.metrics.WorkflowMetrics;
+import com.kevin.demo.workflow.repository.TaskDependencyRepository;
+import com.kevin.demo.workflow.repository.TaskFilter;
 import com.kevin.demo.workflow.repository.TaskRepository;
+import com.kevin.demo.workflow.repository.TaskStateRef;
+import com.kevin.demo.workflow.repository.TaskSummary;
 import com.kevin.demo.workflow.repository.TaskTransitionRepository;
+import com.kevin.demo.workflow.repository.UpdatedTask;
+
+import jakarta.persistence.EntityManager;
 
 @Service
 public class TaskService {
 
+    // matches hibernate.jdbc.batch_size
+    private static final int INSERT_CHUNK_SIZE = 50;
+
+    // children of a completed task are released this many at a time
+    private static final int DEPENDENT_CHUNK_SIZE = 1_000;
+
+    // error message of a lease timeout, and its error class for retry policies
+    public static final String LEASE_EXPIRED = "LEASE_EXPIRED";
+
     private final TaskRepository taskRepository;
     private final TaskTransitionRepository transitionRepository;
+    private final TaskDependencyRepository dependencyRepository;
+    private final TransitionHistoryWriter historyWriter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WorkflowMetrics metrics;
+    private final EntityManager entityManager;
+    private final NodeIdentity node;
+    private final LeaseProperties leaseProperties;
+    private final FairShareAllocator fairShare;
+    private final TaskTypeLimiter typeLimiter;
+    private final RetryPolicies retryPolicies;
+    private final TaskTypeCircuitBreakers circuitBreakers;
+    private final TaskCacheInvalidator cache;
+    private final TransactionTemplate readTemplate;
 
     public TaskService(TaskRepository taskRepository,
-                       TaskTransitionRepository transitionRepository) {
+                       TaskTransitionRepository transitionRepository,
+                       TaskDependencyRepository dependencyRepository,
+                       TransitionHistoryWriter historyWriter,
+                       ApplicationEventPublisher eventPublisher,
+                       WorkflowMetrics metrics,
+                       EntityManager entityManager,
+                       NodeIdentity node,
+                       LeaseProperties leaseProperties,
+                       FairShareAllocator fairShare,
+                       TaskTypeLimiter typeLimiter,
+                       RetryPolicies retryPolicies,
+                       TaskTypeCircuitBreakers circuitBreakers,
+                       TaskCacheInvalidator cache,
+                       PlatformTransactionManager transactionManager) {
         this.taskRepository = taskRepository;
         this.transitionRepository = transitionRepository;
+        this.dependencyRepository = dependencyRepository;
+        this.historyWriter = historyWriter;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.entityManager = entityManager;
+        this.node = node;
+        this.leaseProperties = leaseProperties;
+        this.fairShare = fairShare;
+        this.typeLimiter = typeLimiter;
+        this.retryPolicies = retryPolicies;
+        this.circuitBreakers = circuitBreakers;
+        this.cache = cache;
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
     }
 
     // create task
     @Transactional
     public Task createTask(String title, String description) {
-        Task task = new Task(title, description);
+        return createTask(new Task(title, description));
+    }
+
+    @Transactional
+    public Task createTask(Task task) {
+        return createTask(task, List.of());
+    }
+
+    // a task with runAt goes straight to SCHEDULED and is queued by the timer wheel;
+    // a task with dependencies stays CREATED until its last parent completes, then
+    // is queued without a submit
+    @Transactional
+    public Task createTask(Task task, Collection<Long> dependsOn) {
+        retryPolicies.prepare(task);
+        Set<Long> parents = new LinkedHashSet<>(dependsOn);
+        ParentStates parentStates = lockParents(parents);
+        initialize(task, parents, parentStates, false);
+
         Task saved = taskRepository.save(task);
+        dependencyRepository.saveAll(edges(saved, parents, parentStates));
 
-        transitionRepository.save(
-            new TaskTransition(
-                saved,
-                null,
-                saved.getState(),
-                "CREATE",
-                "Task created"
-            )
-        );
+        List<TaskTransition> transitions = initialTransitions(saved);
+        historyWriter.record(transitions);
+        publishCreated(transitions);
 
         return saved;
     }
 
+    @Transactional
+    public List<Task> createTasks(List<Task> tasks, boolean submit) {
+        return createTasks(tasks, Collections.nCopies(tasks.size(), List.of()), submit);
+    }
+
+    // create many tasks, optionally queued right away (tasks with runAt are always
+    // scheduled); dependsOn.get(i) lists the parents of tasks.get(i). Inserts are
+    // flushed in JDBC batches and the persistence context is cleared per chunk to
+    // bound memory
+    @Transactional
+    public List<Task> createTasks(List<Task> tasks, List<? extends Collection<Long>> dependsOn, boolean submit) {
+        tasks.forEach(retryPolicies::prepare);
+
+        List<Set<Long>> parents = new ArrayList<>(tasks.size());
+        Set<Long> allParents = new LinkedHashSet<>();
+        for (Collection<Long> ids : dependsOn) {
+            Set<Long> taskParents = new LinkedHashSet<>(ids);
+            parents.add(taskParents);
+            allParents.addAll(taskParents);
+        }
+        ParentStates parentStates = lockParents(allParents);
+
+        for (int start = 0; start < tasks.size(); start += INSERT_CHUNK_SIZE) {
+            int end = Math.min(start + INSERT_CHUNK_SIZE, tasks.size());
+            List<Task> chunk = tasks.subList(start, end);
+
+            for (int i = start; i < end; i++) {
+                initialize(tasks.get(i), parents.get(i), parentStates, submit);
+            }
+            taskRepository.saveAll(chunk);
+
+            List<TaskDependency> edges = new ArrayList<>();
+            List<TaskTransition> transitions = new ArrayList<>(chunk.size() * 2);
+            for (int i = start; i < end; i++) {
+                edges.addAll(edges(tasks.get(i), parents.get(i), parentStates));
+                transitions.addAll(initialTransitions(tasks.get(i)));
+            }
+            dependencyRepository.saveAll(edges);
+            historyWriter.record(transitions);
+
+            entityManager.flush();
+            entityManager.clear();
+
+            publishCreated(transitions);
+        }
+
+        return tasks;
+    }
+
+    // CREATED while parents are pending; otherwise SCHEDULED with a runAt, or QUEUED
+    // when submitted (a task with dependencies counts as submitted)
+    private static void initialize(
+            Task task,
+            Set<Long> dependsOn,
+            ParentStates parentStates,
+            boolean submit
+    ) {
+        int pending = (int) dependsOn.stream()
+                .filter(id -> parentStates.states().get(id) != TaskState.COMPLETED)
+                .count();
+        task.setPendingDependencies(pending);
+
+        if (pending > 0) return;
+
+        if (task.getRunAt() != null) {
+            task.setState(TaskState.SCHEDULED);
+        } else if (submit || !dependsOn.isEmpty()) {
+            task.setState(TaskState.QUEUED);
+        }
+    }
+
+    private static List<TaskTransition> initialTransitions(Task task) {
+        List<TaskTransition> transitions = new ArrayList<>(2);
+        transitions.add(new TaskTransition(task, null, TaskState.CREATED, "CREATE", "Task created"));
+        if (task.getState() == TaskState.SCHEDULED) {
+            transitions.add(new TaskTransition(task, TaskState.CREATED, TaskState.SCHEDULED, "SCHEDULE", null));
+        } else if (task.getState() == TaskState.QUEUED) {
+            transitions.add(new TaskTransition(task, TaskState.CREATED, TaskState.QUEUED, "SUBMIT", null));
+        }
+        return transitions;
+    }
+
+    private void publishCreated(List<TaskTransition> transitions) {
+        for (TaskTransition transition : transitions) {
+            Task task = transition.getTask();
+            if (transition.getFromState() == null) {
+                publish(transition, null);
+                continue;
+            }
+            publish(transition, task.getCreatedAt());
+            if (transition.getToState() == TaskState.SCHEDULED) {
+                eventPublisher.publishEvent(new TaskScheduledEvent(task.getId(), task.getRunAt()));
+            }
+        }
+    }
+
+    // states of a new task's parents; archived ones are COMPLETED (a DEAD_LETTER one is
+    // refused) and get no edge, as their rows have left the tasks table
+    private record ParentStates(Map<Long, TaskState> states, Set<Long> archived) {}
+
+    // shared locks on the parents: a parent cannot complete or be dead-lettered between
+    // being counted as pending here and this transaction's edges becoming visible to it.
+    // A dead-lettered parent is refused, as the child could never run. Parents missing
+    // from tasks are looked up in the archive, where terminal tasks go after retention
+    private ParentStates lockParents(Set<Long> parentIds) {
+        if (parentIds.isEmpty()) return new ParentStates(Map.of(), Set.of());
+
+        Map<Long, TaskState> states = new HashMap<>();
+        for (Task parent : taskRepository.lockAllForShare(parentIds)) {
+            states.put(parent.getId(), parent.getState());
+        }
+
+        Set<Long> archived = new HashSet<>();
+        if (states.size() < parentIds.size()) {
+            List<Long> missing = parentIds.stream().filter(id -> !states.containsKey(id)).toList();
+            for (TaskStateRef parent : taskRepository.lockArchivedStates(missing)) {
+                states.put(parent.getId(), parent.getState());
+                archived.add(parent.getId());
+            }
+        }
+
+        for (Long id : parentIds) {
+            TaskState state = states.get(id);
+            if (state == null) {
+                throw new IllegalArgumentException("Task not found: " + id);
+            }
+            if (state == TaskState.DEAD_LETTER) {
+                throw new IllegalStateException("Parent task is dead-lettered: " + id);
+            }
+        }
+        return new ParentStates(states, archived);
+    }
+
+    private static List<TaskDependency> edges(Task task, Set<Long> dependsOn, ParentStates parentStates) {
+        return dependsOn.stream()
+                .filter(parentId -> !parentStates.archived().contains(parentId))
+                .map(parentId -> new TaskDependency(task.getId(), parentId))
+                .toList();
+    }
+
     // transition: created -> queued 
     @Transactional
     public Task submit(Long taskId) {
-        Task task = taskRepository.findById(taskId)
-            .orElseThrow(() -> new IllegalArgumentException("Task not found: " + taskId));
+        if (taskRepository.submitIfCreated(taskId, Instant.now()) == 0) {
+            Task task = find(taskId);
+            requireState(task, TaskState.CREATED, "SUBMIT");
+            throw new IllegalStateException(
+                    "Task is waiting on " + task.getPendingDependencies() + " dependencies: " + taskId
+            );
+        }
 
-        requireState(task, TaskState.CREATED, "SUBMIT");
+        return recordUpdated(taskId, TaskState.CREATED, "SUBMIT", null);
+    }
 
-        TaskState from = task.getState();
+    // transition: scheduled -> queued for the given tasks whose runAt has passed.
+    // Rows are locked with SKIP LOCKED, so when several nodes release the same task
+    // only one records the transition; returns how many this call released.
+    @Transactional
+    public int releaseDueScheduled(Collection<Long> taskIds) {
+        if (taskIds.isEmpty()) return 0;
 
-        task.setState(TaskState.QUEUED);
-        Task saved = taskRepository.save(task);
+        List<Task> due = taskRepository.lockDueScheduled(taskIds, Instant.now());
 
-        recordTransitionIfChanged(saved, from, "SUBMIT", null);
+        List<TaskTransition> transitions = new ArrayList<>(due.size());
+        List<Instant> scheduledSince = new ArrayList<>(due.size());
+        for (Task task : due) {
+            scheduledSince.add(task.getUpdatedAt());
+            task.setState(TaskState.QUEUED);
+            transitions.add(new TaskTransition(task, TaskState.SCHEDULED, TaskState.QUEUED, "RELEASE", null));
+        }
 
-        return saved;
+        historyWriter.record(transitions);
+        for (int i = 0; i < transitions.size(); i++) {
+            publish(transitions.get(i), scheduledSince.get(i));
+        }
+
+        return due.size();
     }
 
-    // transition: queued -> processing 
+    // transition: queued -> processing, leased to this node
     @Transactional
     public boolean claimForProcessing(Long taskId) {
+        return claimForProcessing(taskId, node.id());
+    }
 
-        int updated = taskRepository.transitionStateIfCurrent(
-                taskId,
-                TaskState.QUEUED,
-                TaskState.PROCESSING
-        );
+    // transition: queued -> processing, leased to `owner`, who must heartbeat
+    // (renewLeases) until it completes or fails the task. Not claimed while the
+    // task's type is over its limit or its circuit is open.
+    @Transactional
+    public boolean claimForProcessing(Long taskId, String owner) {
+
+        // the type's limit is checked first, like the batch claim, so in-flight
+        // counts never include this task; then the circuit, whose half-open probe
+        // is only taken for a claim nothing else refuses
+        boolean tookBudget = false;
+        boolean tripped = circuitBreakers.anyTripped();
+        String taskType = typeLimiter.hasLimits() || tripped ? taskRepository.findTaskType(taskId) : null;
+        if (typeLimiter.hasLimits() && taskType != null) {
+            if (!typeLimiter.acquire(List.of(taskType), Instant.now()).tryTake(taskType)) {
+                // over its type's limit: stays QUEUED, no attempt used; counted in
+                // workflow.claim.throttled, not as a lost claim
+                return false;
+            }
+            tookBudget = true;
+        }
+        if (tripped && taskType != null && !circuitBreakers.tryClaim(taskType, taskId)) {
+            // circuit open: stays QUEUED, no attempt used
+            if (tookBudget) {
+                // give the token back
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            }
+            metrics.recordCircuitOpenClaim();
+            return false;
+        }
 
-        if (updated == 0) return false;
+        int updated = taskRepository.claimIfQueued(taskId, owner, leaseExpiry(), Instant.now());
+
+        if (updated == 0) {
+            if (taskType != null) {
+                circuitBreakers.release(taskType, taskId);
+            }
+            if (tookBudget) {
+                // give the token back
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            }
+            metrics.recordClaims(0, 1);
+            return false;
+        }
 
-        Task task = taskRepository.findById(taskId)
-                .orElseThrow(() -> new IllegalArgumentException("Task not found: " + taskId));
+        metrics.recordClaims(1, 0);
 
-        transitionRepository.save(
-                new TaskTransition(
-                        task,
-                        TaskState.QUEUED,
-                        TaskState.PROCESSING,
-                        "START_PROCESSING",
-                        null
-                )
-        );
+        recordUpdated(taskId, TaskState.QUEUED, "START_PROCESSING", null);
 
         return true;
     }
 
+    // transition: queued -> processing for up to `limit` tasks in one transaction.
+    // The batch is split across queues by FairShareAllocator; within a queue, higher
+    // priority and then older tasks go first. Rows are locked with SKIP LOCKED, so
+    // every task returned is owned by the caller.
+    @Transactional
+    public List<Task> claimQueuedBatch(int limit) {
+
+        List<String> queues = taskRepository.findQueuedQueueNames();
+        if (queues.isEmpty()) return List.of();
+
+        // locks the limits of the types about to be claimed until commit
+        TaskTypeLimiter.Budget budget = typeLimiter.acquire(
+                typeLimiter.hasLimits() ? taskRepository.findQueuedTaskTypes() : List.of(),
+                Instant.now()
+        );
+
+        List<Task> claimed = new ArrayList<>(limit);
+        List<Instant> queuedSince = new ArrayList<>(limit);
+        Instant leaseExpiresAt = leaseExpiry();
+
+        List<String> filled = new ArrayList<>();
+        for (Map.Entry<String, Integer> quota : fairShare.allocate(queues, limit).entrySet()) {
+            if (quota.getValue() == 0) continue;
+
+            int count = lockAndLease(quota.getKey(), quota.getValue(), budget, leaseExpiresAt, claimed, queuedSince);
+            if (count == quota.getValue()) {
+                filled.add(quota.getKey());
+            }
+        }
+
+        // slots a queue could not use go to the queues that used all of theirs
+        int remaining = limit - claimed.size();
+        if (remaining > 0 && !filled.isEmpty()) {
+            // rows claimed above must no longer match state = 'QUEUED'
+            entityManager.flush();
+            for (String queue : filled) {
+                if (remaining == 0) break;
+                remaining -= lockAndLease(queue, remaining, budget, leaseExpiresAt, claimed, queuedSince);
+            }
+        }
+
+        if (claimed.isEmpty()) return claimed;
+
+        List<TaskTransition> transitions = new ArrayList<>(claimed.size());
+        for (Task task : claimed) {
+            transitions.add(
+                    new TaskTransition(
+                            task,
+                            TaskState.QUEUED,
+                            TaskState.PROCESSING,
+                            "START_PROCESSING",
+                            null
+                    )
+            );
+        }
+
+        historyWriter.record(transitions);
+        for (int i = 0; i < transitions.size(); i++) {
+            publish(transitions.get(i), queuedSince.get(i));
+        }
+
+        metrics.recordClaims(claimed.size(), 0);
+
+        return claimed;
+    }
+
+    private int lockAndLease(
+            String queue,
+            int limit,
+            TaskTypeLimiter.Budget budget,
+            Instant leaseExpiresAt,
+            List<Task> claimed,
+            List<Instant> queuedSince
+    ) {
+        List<String> excluded = new ArrayList<>(budget.exhausted());
+        excluded.addAll(circuitBreakers.blockedTypes());
+        List<Task> locked = taskRepository.lockNextQueued(
+                queue, excluded.isEmpty() ? List.of("") : excluded, limit);
+
+        int count = 0;
+        for (Task task : locked) {
+            // over its type's limit or circuit open: stays QUEUED, no attempt used
+            if (!budget.tryTake(task.getTaskType())) continue;
+            if (!circuitBreakers.tryClaim(task.getTaskType(), task.getId())) {
+                budget.giveBack(task.getTaskType());
+                continue;
+            }
+
+            queuedSince.add(task.getUpdatedAt());
+
+            task.setState(TaskState.PROCESSING);
+            task.setLastError(null);
+            task.setLease(node.id(), leaseExpiresAt);
+            claimed.add(task);
+            count++;
+        }
+
+        return count;
+    }
+
     // transition: processing -> completed
     @Transactional
     public Task complete(Long taskId) {
-        Task task = taskRepository.findById(taskId)
-                .orElseThrow(() -> new IllegalArgumentException("Task not found: " + taskId));
+        return complete(taskId, null);
+    }
 
-        requireState(task, TaskState.PROCESSING, "COMPLETE");
+    // as complete(taskId), but only while `owner` still holds the lease; null skips the check
+    @Transactional
+    public Task complete(Long taskId, String owner) {
+        if (taskRepository.completeIfProcessing(taskId, owner, Instant.now()) == 0) {
+            throw rejected(taskId, owner, "COMPLETE");
+        }
 
-        TaskState from = task.getState();
+        Task saved = recordUpdated(taskId, TaskState.PROCESSING, "COMPLETE", null);
+        releaseDependents(taskId);
 
-        task.setState(TaskState.COMPLETED);
-        Task saved = taskRepository.save(task);
+        return saved;
+    }
 
-        recordTransitionIfChanged(saved, from, "COMPLETE", null);
+    // one parent fewer for every child of a completed task; children with none left
+    // are queued (or scheduled, with a runAt). The counters are decremented in bulk,
+    // so a wide fan-out costs a few statements per chunk instead of a parent scan
+    // per child, and concurrent parents of one child serialize on its row lock.
+    private void releaseDependents(Long taskId) {
+        List<Long> childIds = dependencyRepository.lockDependents(taskId).stream()
+                .map(TaskDependency::getTaskId)
+                .toList();
+
+        for (int start = 0; start < childIds.size(); start += DEPENDENT_CHUNK_SIZE) {
+            List<Long> chunk = childIds.subList(start, Math.min(start + DEPENDENT_CHUNK_SIZE, childIds.size()));
+
+            taskRepository.decrementPendingDependencies(chunk);
+            eventPublisher.publishEvent(new TasksUpdatedEvent(chunk));
+            List<Task> ready = taskRepository.findByIdInAndStateAndPendingDependencies(
+                    chunk, TaskState.CREATED, 0);
+
+            List<TaskTransition> transitions = new ArrayList<>(ready.size());
+            List<Instant> createdSince = new ArrayList<>(ready.size());
+            for (Task child : ready) {
+                createdSince.add(child.getUpdatedAt());
+                child.setState(child.getRunAt() != null ? TaskState.SCHEDULED : TaskState.QUEUED);
+                transitions.add(new TaskTransition(
+                        child, TaskState.CREATED, child.getState(), "DEPENDENCIES_MET", null));
+            }
+            historyWriter.record(transitions);
+
+            entityManager.flush();
+            entityManager.clear();
+
+            for (int i = 0; i < transitions.size(); i++) {
+                publish(transitions.get(i), createdSince.get(i));
+                Task child = transitions.get(i).getTask();
+                if (child.getState() == TaskState.SCHEDULED) {
+                    eventPublisher.publishEvent(new TaskScheduledEvent(child.getId(), child.getRunAt()));
+                }
+            }
+        }
+    }
 
-        return saved;
+    // transition: created -> dead_letter for the tasks waiting on dead-lettered parents,
+    // then for the tasks waiting on those, down the graph: none of them can ever run.
+    // Each level is one locking read of the edges plus one of the waiting children
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deadLetterDependents(Collection<Long> parentIds) {
+        Collection<Long> parents = parentIds;
+        while (!parents.isEmpty()) {
+            Map<Long, Long> parentOf = new HashMap<>();
+            for (TaskDependency edge : dependencyRepository.lockDependentsOf(parents)) {
+                parentOf.putIfAbsent(edge.getTaskId(), edge.getDependsOnTaskId());
+            }
+            List<Long> childIds = new ArrayList<>(parentOf.keySet());
+            List<Long> deadLettered = new ArrayList<>();
+
+            for (int start = 0; start < childIds.size(); start += DEPENDENT_CHUNK_SIZE) {
+                List<Long> chunk = childIds.subList(start, Math.min(start + DEPENDENT_CHUNK_SIZE, childIds.size()));
+
+                List<Task> waiting = taskRepository.lockWaiting(chunk);
+                List<TaskTransition> transitions = new ArrayList<>(waiting.size());
+                List<Instant> createdSince = new ArrayList<>(waiting.size());
+                for (Task child : waiting) {
+                    String message = "Parent task is dead-lettered: " + parentOf.get(child.getId());
+                    createdSince.add(child.getUpdatedAt());
+                    child.setState(TaskState.DEAD_LETTER);
+                    child.setLastError(message);
+                    transitions.add(new TaskTransition(
+                            child, TaskState.CREATED, TaskState.DEAD_LETTER, "DEPENDENCY_FAILED", message));
+                    deadLettered.add(child.getId());
+                }
+                historyWriter.record(transitions);
+
+                entityManager.flush();
+                entityManager.clear();
+
+                for (int i = 0; i < transitions.size(); i++) {
+                    publish(transitions.get(i), createdSince.get(i));
+                }
+            }
+
+            parents = deadLettered;
+        }
     }
 
-    // transition: processing -> failed
+    // transition: processing -> failed, or dead_letter once attempts are used up
     @Transactional
     public Task fail(Long taskId, String errorMessage) {
-        Task task = taskRepository.findById(taskId)
-                .orElseThrow(() -> new IllegalArgumentException("Task not found: " + taskId));
-
-        requireState(task, TaskState.PROCESSING, "FAIL");
+        return fail(taskId, errorMessage, null);
+    }
 
-        TaskState from = task.getState();
+    // as fail(taskId, errorMessage), but only while `owner` still holds the lease; null skips the check
+    @Transactional
+    public Task fail(Long taskId, String errorMessage, String owner) {
+        return fail(taskId, errorMessage, owner, null);
+    }
 
-        task.setAttemptCount(task.getAttemptCount() + 1);
-        task.setLastError(errorMessage);
-        task.setState(TaskState.FAILED);
+    // the task's retry policy decides from errorClass (null if unknown) whether the task
+    // is retried and after what delay. The row is read first so the backoff can use its
+    // attempt count and previous delay; the update is guarded by the version read
+    @Transactional
+    public Task fail(Long taskId, String errorMessage, String owner, String errorClass) {
+        Task task = taskRepository.findById(taskId).orElse(null);
+        if (task == null
+                || task.getState() != TaskState.PROCESSING
+                || (owner != null && !owner.equals(task.getLeaseOwner()))) {
+            throw rejected(taskId, owner, "FAIL");
+        }
 
-        Task saved = taskRepository.save(task);
+        Duration delay = retryDelay(task, retryPolicies.forTask(task).retries(errorClass));
+        Long version = task.getVersion();
+        Long previousDelay = task.getRetryDelayMillis();
+        // recordUpdated reads the row again after the bulk update
+        entityManager.detach(task);
+
+        Instant now = Instant.now();
+        int updated = delay != null
+                ? taskRepository.failIfProcessing(taskId, version, owner, TaskState.FAILED,
+                        now.plus(delay), delay.toMillis(), errorMessage, now)
+                : taskRepository.failIfProcessing(taskId, version, owner, TaskState.DEAD_LETTER,
+                        null, previousDelay, errorMessage, now);
+
+        if (updated == 0) {
+            throw rejected(taskId, owner, "FAIL");
+        }
 
-        recordTransitionIfChanged(saved, from, "FAIL", errorMessage);
+        Task saved = recordUpdated(taskId, TaskState.PROCESSING, "FAIL", errorMessage);
+        if (delay == null) {
+            deadLetterDependents(List.of(taskId));
+        }
 
         return saved;
     }
 
+    // delay before the next attempt after the current one failed, or null when the
+    // task goes to DEAD_LETTER (attempts used up, or an error its policy does not retry)
+    private Duration retryDelay(Task task, boolean retryable) {
+        RetryProperties.Policy policy = retryPolicies.forTask(task);
+        int attempt = task.getAttemptCount() + 1;
+        if (attempt >= task.getMaxAttempts() || !retryable) return null;
+
+        Long previous = task.getRetryDelayMillis();
+        return policy.delay(attempt, previous != null ? Duration.ofMillis(previous) : null);
+    }
+
     // transition: after failed -> queued (again) for retry 
     @Transactional
     public Task retry(Long taskId) {
-        Task task = taskRepository.findById(taskId)
-                .orElseThrow(() -> new IllegalArgumentException("Task not found: " + taskId));
+        if (taskRepository.retryIfFailed(taskId, Instant.now()) == 1) {
+            return recordUpdated(taskId, TaskState.FAILED, "RETRY", null);
+        }
 
+        Task task = find(taskId);
+
+        // already retried (or past it): nothing to do
         if (task.getState() == TaskState.QUEUED
                 || task.getState() == TaskState.PROCESSING
                 || task.getState() == TaskState.COMPLETED) {
             return task;
         }
 
-        requireState(task, TaskState.FAILED, "RETRY");
-
-        if (task.getAttemptCount() >= task.getMaxAttempts()) {
+        if (task.getState() == TaskState.DEAD_LETTER
+                || task.getAttemptCount() >= task.getMaxAttempts()) {
             throw new IllegalStateException("Max attempts reached for task: " + taskId);
         }
 
-        TaskState from = task.getState();
+        requireState(task, TaskState.FAILED, "RETRY");
+        throw new IllegalStateException("Task changed concurrently: " + taskId);
+    }
 
-        task.setState(TaskState.QUEUED);
-        task.setLastError(null);
-        Task saved = taskRepository.save(task);
+    // cached until the task's next committed transition (see TaskCacheInvalidator);
+    // not transactional, so a hit never takes a connection
+    public Task get(Long id) {
+        return cache.getTask(id, () -> readTemplate.execute(status -> find(id)));
+    }
 
-        recordTransitionIfChanged(saved, from, "RETRY", null);
+    // as get, but always read from the database: the cache is per node, so it can
+    // still hold a state that another node has moved on from
+    @Transactional(readOnly = true)
+    public Task getUncached(Long id) {
+        return find(id);
+    }
 
-        return saved;
+    @Transactional(readOnly = true)
+    public List<Long> getDependencies(Long taskId) {
+        if (!taskRepository.existsById(taskId)) {
+            throw new IllegalArgumentException("Task not found: " + taskId);
+        }
+        return dependencyRepository.findDependsOnIds(taskId);
     }
 
     @Transactional(readOnly = true)
-    public Task get(Long id) {
-        return taskRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Task not found: " + id));
+    public List<TaskSummary> listTasks(TaskFilter filter, Instant afterUpdatedAt, Long afterId, int limit) {
+        return taskRepository.findSummaries(filter, afterUpdatedAt, afterId, limit);
+    }
+
+    // cached like get
+    public List<TaskTransition> getTransitions(Long taskId) {
+        return cache.getTransitions(taskId, () -> readTemplate.execute(status ->
+                List.copyOf(transitionRepository.findByTaskIdOrderByCreatedAtAsc(taskId))));
     }
 
-    private void recordTransitionIfChanged(
+    // reads back a task after a guarded UPDATE moved it out of fromState and records the transition
+    private Task recordUpdated(Long taskId, TaskState fromState, String event, String message) {
+        UpdatedTask updated = taskRepository.findUpdated(taskId);
+        Task task = updated.task();
+
+        recordTransition(task, fromState, task.getState(), updated.stateEnteredAt(), event, message);
+        return task;
+    }
+
+    // why a guarded PROCESSING transition matched no row: 404, wrong state or lost lease
+    private IllegalStateException rejected(Long taskId, String owner, String action) {
+        Task task = find(taskId);
+        requireState(task, TaskState.PROCESSING, action);
+        requireLease(task, owner, action);
+        return new IllegalStateException("Task changed concurrently: action=" + action + " taskId=" + taskId);
+    }
+
+    private Task find(Long taskId) {
+        return taskRepository.findById(taskId)
+                .orElseThrow(() -> new IllegalArgumentException("Task not found: " + taskId));
+    }
+
+    private void recordTransition(
             Task task,
             TaskState fromState,
+            TaskState toState,
+            Instant stateEnteredAt,
             String event,
             String message
     ) {
-        if (fromState != task.getState()) {
-            transitionRepository.save(
-                    new TaskTransition(
-                            task,
-                            fromState,
-                            task.getState(),
-                            event,
-                            message
-                    )
+        TaskTransition transition = new TaskTransition(task, fromState, toState, event, message);
+        historyWriter.record(transition);
+        publish(transition, stateEnteredAt);
+    }
+
+    private void publish(TaskTransition transition, Instant stateEnteredAt) {
+        eventPublisher.publishEvent(
+                new TaskTransitionEvent(
+                        transition.getTask().getId(),
+                        transition.getTask().getQueue(),
+                        transition.getTask().getTaskType(),
+                        transition.getFromState(),
+                        transition.getToState(),
+                        transition.getEvent(),
+                        stateEnteredAt,
+                        transition.getCreatedAt()
+                )
+        );
+    }
+
+    private void requireLease(Task task, String owner, String action) {
+        if (owner != null && !owner.equals(task.getLeaseOwner())) {
+            throw new IllegalStateException(
+                    "Lease not held: action=" + action +
+                    " owner=" + owner +
+                    " leaseOwner=" + task.getLeaseOwner() +
+                    " taskId=" + task.getId()
             );
         }
     }
@@ -192,32 +754,55 @@ public class TaskService {
         }
     }
 
+    // extends the leases `owner` still holds among taskIds; returns those ids.
+    // Tasks missing from the result were reaped or finished and must be abandoned.
     @Transactional
-    public boolean timeoutProcessingIfStale(Long taskId, Instant cutoff) {
+    public List<Long> renewLeases(String owner, Collection<Long> taskIds) {
+        if (taskIds.isEmpty()) return List.of();
 
-        int updated = taskRepository.transitionStateIfCurrentAndStale(
-                taskId,
-                TaskState.PROCESSING,
-                TaskState.FAILED,
-                cutoff,
-                "PROCESSING_TIMEOUT"
-        );
+        taskRepository.renewLeases(owner, taskIds, leaseExpiry());
+        List<Long> renewed = taskRepository.findLeasedIds(owner, taskIds);
+        eventPublisher.publishEvent(new TasksUpdatedEvent(renewed));
+        return renewed;
+    }
 
-        if (updated == 0) return false;
+    // transition: processing -> failed when the lease ran out (owner died, hung or
+    // stopped heartbeating), or dead_letter. The attempt counts and goes through the
+    // retry policy's backoff and attempt budget (abort-on may list LEASE_EXPIRED), so a
+    // task that keeps killing its worker ends up in DEAD_LETTER instead of re-running forever
+    @Transactional
+    public boolean expireLeaseIfDue(Long taskId, Instant now) {
+        Task task = taskRepository.findById(taskId).orElse(null);
+        if (task == null
+                || task.getState() != TaskState.PROCESSING
+                || task.getLeaseExpiresAt() == null
+                || !task.getLeaseExpiresAt().isBefore(now)) {
+            return false;
+        }
 
-        Task task = taskRepository.findById(taskId)
-                .orElseThrow(() -> new IllegalArgumentException("Task not found: " + taskId));
+        Duration delay = retryDelay(task, !retryPolicies.forTask(task).aborts(LEASE_EXPIRED));
+        Long version = task.getVersion();
+        Long previousDelay = task.getRetryDelayMillis();
+        entityManager.detach(task);
 
-        transitionRepository.save(
-                new TaskTransition(
-                        task,
-                        TaskState.PROCESSING,
-                        TaskState.FAILED,
-                        "TIMEOUT",
-                        null
-                )
-        );
+        // a heartbeat does not bump the version; the update re-checks the expiry itself
+        int updated = delay != null
+                ? taskRepository.expireLeaseIfDue(taskId, version, TaskState.FAILED,
+                        now.plus(delay), delay.toMillis(), LEASE_EXPIRED, now)
+                : taskRepository.expireLeaseIfDue(taskId, version, TaskState.DEAD_LETTER,
+                        null, previousDelay, LEASE_EXPIRED, now);
+
+        if (updated == 0) return false;
+
+        recordUpdated(taskId, TaskState.PROCESSING, "TIMEOUT", LEASE_EXPIRED);
+        if (delay == null) {
+            deadLetterDependents(List.of(taskId));
+        }
 
         return true;
     }
+
+    private Instant leaseExpiry() {
+        return Instant.now().plus(leaseProperties.duration());
+    }
 }
@@ -0,0 +1,458 @@
+package com.kevin.demo.workflow.service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.kevin.demo.workflow.domain.TaskState;
+import com.kevin.demo.workflow.repository.TaskRepository;
+import com.kevin.demo.workflow.repository.TaskStatusRef;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Pushes task status changes to stream subscribers, so clients wait for a task
+ * instead of polling {@code GET /api/tasks/{id}}.
+ *
+ * Changes committed on this node arrive as {@link TaskTransitionEvent}s right after
+ * commit. Changes committed on other nodes are picked up by tailing the updated_at
+ * index every poll interval while anyone is subscribed: one query per node, however
+ * many subscribers. The last state sent per task is remembered, so a change seen
+ * both ways goes out once.
+ *
+ * Every subscriber has its own bounded buffer, drained by a small sender pool, so a
+ * slow client never blocks a committing thread or the other subscribers. The change
+ * that finds a buffer full closes that subscription on the spot and drops what it
+ * buffered; the subscriber is sent an overflow event and disconnected, and should
+ * re-read what it watches and subscribe again. A write that has not returned after
+ * the send timeout (a client that stopped reading) is treated the same way, and the
+ * pool gets a spare thread until the stuck write returns, so the sender threads
+ * cannot all end up blocked on dead sockets.
+ */
+@Component
+public class TaskStatusBroadcaster implements SmartLifecycle {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TaskStatusBroadcaster.class);
+
+    private static final int POLL_LIMIT = 5_000;
+    private static final int LAST_SENT_CAPACITY = 100_000;
+
+    // queued like a change, so heartbeats and changes are written by the same thread
+    private static final TaskStatusChange HEARTBEAT =
+            new TaskStatusChange(null, null, null, null, null, null);
+    // never queued; the overflow event, so write() can time it like the others
+    private static final TaskStatusChange OVERFLOW =
+            new TaskStatusChange(null, null, null, null, null, null);
+
+    private final TaskRepository taskRepository;
+    private final StreamProperties properties;
+    private final Counter overflows;
+    private final Counter stalls;
+
+    // subscribers of a single task, looked up by id; filter subscribers are checked one by one
+    private final Map<Long, Set<Subscription>> byTask = new ConcurrentHashMap<>();
+    private final Set<Subscription> filtered = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    // subscriptions with a write in progress, closed ones included; watched for stuck writes
+    private final Set<Subscription> writing = ConcurrentHashMap.newKeySet();
+
+    private record Sent(TaskState state, Instant at) {}
+
+    // last state sent per task, least recently changed evicted first
+    private final Map<Long, Sent> lastSent = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Sent> eldest) {
+            return size() > LAST_SENT_CAPACITY;
+        }
+    };
+
+    private ThreadPoolExecutor sender;
+    // threads added for writes stuck past the send timeout
+    private int spareSenders;
+    private volatile boolean running;
+    private Thread poller;
+
+    public TaskStatusBroadcaster(TaskRepository taskRepository,
+                                 StreamProperties properties,
+                                 MeterRegistry registry) {
+        this.taskRepository = taskRepository;
+        this.properties = properties;
+
+        Gauge.builder("workflow.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Open task status streams")
+                .register(registry);
+        this.overflows = Counter.builder("workflow.stream.overflows")
+                .description("Status streams closed because the subscriber fell behind")
+                .register(registry);
+        this.stalls = Counter.builder("workflow.stream.stalls")
+                .description("Status streams closed because a write to the subscriber timed out")
+                .register(registry);
+    }
+
+    public Subscription subscribe(TaskStatusFilter filter, TaskStatusSink sink) {
+        if (!running) {
+            throw new StreamUnavailableException("Status streams are shutting down");
+        }
+        if (subscribers.incrementAndGet() > properties.maxSubscribers()) {
+            subscribers.decrementAndGet();
+            throw new StreamUnavailableException(
+                    "Too many status streams, limit=" + properties.maxSubscribers()
+            );
+        }
+
+        Subscription subscription = new Subscription(filter, sink, properties.bufferSize());
+        if (filter.taskId() != null) {
+            // compute, not computeIfAbsent: the set must not be dropped by a concurrent unregister
+            byTask.compute(filter.taskId(), (id, watchers) -> {
+                Set<Subscription> set = watchers != null ? watchers : ConcurrentHashMap.newKeySet();
+                set.add(subscription);
+                return set;
+            });
+        } else {
+            filtered.add(subscription);
+        }
+        return subscription;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TaskTransitionEvent event) {
+        if (subscribers.get() == 0) return;
+
+        Sent previous;
+        synchronized (lastSent) {
+            previous = lastSent.put(event.taskId(), new Sent(event.toState(), event.occurredAt()));
+        }
+        if (previous != null && previous.state() == event.toState()) return;
+
+        dispatch(new TaskStatusChange(
+                event.taskId(),
+                event.queue(),
+                event.toState(),
+                event.fromState(),
+                event.event(),
+                event.occurredAt()
+        ));
+    }
+
+    private void dispatch(TaskStatusChange change) {
+        Set<Subscription> watchers = byTask.get(change.taskId());
+        if (watchers != null) {
+            watchers.forEach(subscription -> subscription.offer(change));
+        }
+        for (Subscription subscription : filtered) {
+            if (subscription.filter.matches(change)) {
+                subscription.offer(change);
+            }
+        }
+    }
+
+    // a polled row may predate a change already sent from an event (the poll read it
+    // before that commit); only a different state that is not older goes out. Returns
+    // the state sent before, or the polled state itself when it is skipped
+    private TaskState rememberPolled(TaskStatusRef ref) {
+        synchronized (lastSent) {
+            Sent previous = lastSent.get(ref.getId());
+            if (previous != null
+                    && (previous.state() == ref.getState() || ref.getUpdatedAt().isBefore(previous.at()))) {
+                return ref.getState();
+            }
+            lastSent.put(ref.getId(), new Sent(ref.getState(), ref.getUpdatedAt()));
+            return previous != null ? previous.state() : null;
+        }
+    }
+
+    private void unregister(Subscription subscription) {
+        AtomicBoolean removed = new AtomicBoolean();
+        if (subscription.filter.taskId() != null) {
+            byTask.computeIfPresent(subscription.filter.taskId(), (id, watchers) -> {
+                removed.set(watchers.remove(subscription));
+                return watchers.isEmpty() ? null : watchers;
+            });
+        } else {
+            removed.set(filtered.remove(subscription));
+        }
+        if (removed.get()) {
+            subscribers.decrementAndGet();
+        }
+    }
+
+    private void loop() {
+        long pollMillis = properties.pollInterval().toMillis();
+        long heartbeatMillis = properties.heartbeat().toMillis();
+        long nextHeartbeatAt = System.currentTimeMillis() + heartbeatMillis;
+
+        // updated_at watermark of the tail; null while nobody is subscribed
+        Instant cursor = null;
+        boolean behind = false;
+
+        while (running) {
+            try {
+                Thread.sleep(behind ? 0 : pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            if (subscribers.get() == 0) {
+                if (cursor != null) {
+                    // changes are not tracked while nobody listens
+                    synchronized (lastSent) {
+                        lastSent.clear();
+                    }
+                }
+                cursor = null;
+                behind = false;
+                continue;
+            }
+
+            if (cursor == null) {
+                cursor = Instant.now();
+            }
+            try {
+                // a full page is read again from its last row, without the overlap,
+                // so a burst larger than the page cannot stall the tail
+                Instant since = behind ? cursor : cursor.minus(properties.pollOverlap());
+                List<TaskStatusRef> changed = taskRepository.findChangedSince(since, Limit.of(POLL_LIMIT));
+                for (TaskStatusRef ref : changed) {
+                    TaskState previous = rememberPolled(ref);
+                    if (previous != ref.getState()) {
+                        dispatch(new TaskStatusChange(
+                                ref.getId(), ref.getQueue(), ref.getState(), previous, null, ref.getUpdatedAt()
+                        ));
+                    }
+                }
+                if (!changed.isEmpty()) {
+                    Instant last = changed.get(changed.size() - 1).getUpdatedAt();
+                    if (last.isAfter(cursor)) {
+                        cursor = last;
+                    }
+                }
+                behind = changed.size() == POLL_LIMIT;
+            } catch (Exception e) {
+                log.error("task_status_poll_error", e);
+                behind = false;
+            }
+
+            long now = System.currentTimeMillis();
+            if (now >= nextHeartbeatAt) {
+                byTask.values().forEach(watchers -> watchers.forEach(s -> s.offer(HEARTBEAT)));
+                filtered.forEach(s -> s.offer(HEARTBEAT));
+                nextHeartbeatAt = now + heartbeatMillis;
+            }
+
+            long stuckBefore = now - properties.sendTimeout().toMillis();
+            writing.forEach(s -> s.checkStuck(stuckBefore));
+        }
+    }
+
+    // a stuck write holds its sender thread until the container's write timeout; another
+    // thread takes its place meanwhile
+    private void addSpareSender() {
+        synchronized (this) {
+            spareSenders++;
+            sender.setMaximumPoolSize(properties.senderThreads() + spareSenders);
+            sender.setCorePoolSize(properties.senderThreads() + spareSenders);
+        }
+    }
+
+    private void removeSpareSender() {
+        synchronized (this) {
+            spareSenders--;
+            sender.setCorePoolSize(properties.senderThreads() + spareSenders);
+            sender.setMaximumPoolSize(properties.senderThreads() + spareSenders);
+        }
+    }
+
+    @Override
+    public void start() {
+        sender = new ThreadPoolExecutor(
+                properties.senderThreads(), properties.senderThreads(),
+                0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "task-status-sender");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        running = true;
+        poller = new Thread(this::loop, "task-status-poller");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (poller == null) return;
+
+        poller.interrupt();
+        // open streams would otherwise hold the web server's shutdown until they time out
+        byTask.values().forEach(watchers -> watchers.forEach(Subscription::finish));
+        filtered.forEach(Subscription::finish);
+        sender.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * One open stream. Changes are buffered here and written by a sender thread; at
+     * most one drain runs per subscription, so the sink sees them in order.
+     */
+    public final class Subscription {
+
+        private final TaskStatusFilter filter;
+        private final TaskStatusSink sink;
+        private final BlockingQueue<TaskStatusChange> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean overflowed;
+        private volatile boolean closed;
+        // start of the write in progress, 0 when none
+        private volatile long writingSince;
+        // the write in progress timed out and a spare sender replaced its thread
+        private final AtomicBoolean stuck = new AtomicBoolean();
+
+        private Subscription(TaskStatusFilter filter, TaskStatusSink sink, int bufferSize) {
+            this.filter = filter;
+            this.sink = sink;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        public void offer(TaskStatusChange change) {
+            if (closed) return;
+
+            if (!buffer.offer(change)) {
+                if (closed) return;
+                overflow();
+                overflows.increment();
+                log.info("task_status_overflow filter={}", filter);
+                return;
+            }
+            scheduleDrain();
+        }
+
+        // stops buffering right away; the drain then only sends the overflow event and completes
+        private void overflow() {
+            overflowed = true;
+            close();
+            buffer.clear();
+            scheduleDrain();
+        }
+
+        // called by the poller: a write that started before `stuckBefore` has timed out. The
+        // subscriber is disconnected as if it overflowed (unless it already was), and a spare
+        // sender stands in for the blocked thread until the write returns
+        private void checkStuck(long stuckBefore) {
+            long since = writingSince;
+            if (since == 0 || since >= stuckBefore || !stuck.compareAndSet(false, true)) return;
+
+            addSpareSender();
+            if (!closed) {
+                overflow();
+                stalls.increment();
+                log.info("task_status_send_timeout filter={}", filter);
+            }
+        }
+
+        // stops delivery; called when the transport closes, times out or fails
+        public void close() {
+            if (closed) return;
+            closed = true;
+            unregister(this);
+        }
+
+        private void finish() {
+            close();
+            sink.complete();
+        }
+
+        private void scheduleDrain() {
+            if (!draining.compareAndSet(false, true)) return;
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // shutting down
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                TaskStatusChange change;
+                while (!closed && (change = buffer.poll()) != null) {
+                    if (change == HEARTBEAT) {
+                        write(HEARTBEAT);
+                        continue;
+                    }
+                    write(change);
+                    // a single-task stream ends with the task
+                    if (filter.taskId() != null && change.isTerminal()) {
+                        finish();
+                    }
+                }
+                if (overflowed) {
+                    overflowed = false;
+                    write(OVERFLOW);
+                    sink.complete();
+                }
+            } catch (Exception e) {
+                // client went away
+                close();
+                log.debug("task_status_send_failed filter={} error={}", filter, e.toString());
+            } finally {
+                draining.set(false);
+            }
+
+            if (overflowed || (!closed && !buffer.isEmpty())) {
+                scheduleDrain();
+            }
+        }
+
+        // a change, a heartbeat or the overflow event, timed by checkStuck
+        private void write(TaskStatusChange change) throws IOException {
+            writingSince = System.currentTimeMillis();
+            writing.add(this);
+            try {
+                if (change == OVERFLOW) {
+                    sink.overflow();
+                } else if (change == HEARTBEAT) {
+                    sink.heartbeat();
+                } else {
+                    sink.send(change);
+                }
+            } finally {
+                writing.remove(this);
+                writingSince = 0;
+                // returned or failed at last: the thread is back, the spare goes
+                if (stuck.compareAndSet(true, false)) {
+                    removeSpareSender();
+                }
+            }
+        }
+    }
+}
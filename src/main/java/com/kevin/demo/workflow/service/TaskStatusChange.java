@@ -0,0 +1,27 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Instant;
+
+import com.kevin.demo.workflow.domain.TaskState;
+
+/**
+ * A task status pushed to stream subscribers.
+ *
+ * @param previousState state the task left; for a change committed on another node, the
+ *                      last state seen on this node (null if none)
+ * @param event         transition event, SNAPSHOT for the state sent on subscribe, or null
+ *                      for a change committed on another node
+ */
+public record TaskStatusChange(
+        Long taskId,
+        String queue,
+        TaskState state,
+        TaskState previousState,
+        String event,
+        Instant occurredAt
+) {
+
+    public boolean isTerminal() {
+        return state == TaskState.COMPLETED || state == TaskState.DEAD_LETTER;
+    }
+}
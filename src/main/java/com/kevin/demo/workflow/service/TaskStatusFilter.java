@@ -0,0 +1,17 @@
+package com.kevin.demo.workflow.service;
+
+import com.kevin.demo.workflow.domain.TaskState;
+
+// what a stream subscriber receives; null fields match anything
+public record TaskStatusFilter(Long taskId, String queue, TaskState state) {
+
+    public static TaskStatusFilter forTask(Long taskId) {
+        return new TaskStatusFilter(taskId, null, null);
+    }
+
+    public boolean matches(TaskStatusChange change) {
+        return (taskId == null || taskId.equals(change.taskId()))
+                && (queue == null || queue.equals(change.queue()))
+                && (state == null || state == change.state());
+    }
+}
@@ -0,0 +1,19 @@
+package com.kevin.demo.workflow.service;
+
+import java.io.IOException;
+
+/**
+ * Transport end of a status stream (an SSE connection). Called from a sender thread,
+ * never concurrently for the same subscriber; an IOException closes the subscription.
+ */
+public interface TaskStatusSink {
+
+    void send(TaskStatusChange change) throws IOException;
+
+    void heartbeat() throws IOException;
+
+    // the subscriber fell behind by more than its buffer; sent right before complete()
+    void overflow() throws IOException;
+
+    void complete();
+}
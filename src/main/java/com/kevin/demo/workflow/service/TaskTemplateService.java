@@ -0,0 +1,157 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.domain.TaskTemplate;
+import com.kevin.demo.workflow.repository.TaskTemplateRepository;
+
+/**
+ * Turns cron templates into SCHEDULED tasks ahead of time.
+ *
+ * Occurrences up to the timer horizon are created as tasks with runAt set, so the
+ * timer wheel queues them on time without the cron being evaluated on the hot path.
+ * Templates are locked with SKIP LOCKED while being materialized, so each
+ * occurrence is created once even with several nodes running.
+ *
+ * Misfires (occurrences that passed while no node was running) are collapsed into
+ * one task due immediately; the template then continues from the next occurrence.
+ */
+@Service
+public class TaskTemplateService {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TaskTemplateService.class);
+
+    private static final int TEMPLATE_BATCH_SIZE = 100;
+
+    // bounds a very frequent cron (e.g. every second) against a long horizon
+    private static final int MAX_OCCURRENCES_PER_RUN = 1_000;
+
+    private final TaskTemplateRepository templateRepository;
+    private final TaskService taskService;
+    private final TimerProperties timerProperties;
+
+    public TaskTemplateService(TaskTemplateRepository templateRepository,
+                               TaskService taskService,
+                               TimerProperties timerProperties) {
+        this.templateRepository = templateRepository;
+        this.taskService = taskService;
+        this.timerProperties = timerProperties;
+    }
+
+    @Transactional
+    public TaskTemplate create(TaskTemplate template) {
+        if (templateRepository.existsByName(template.getName())) {
+            throw new IllegalStateException("Task template already exists: " + template.getName());
+        }
+
+        Instant now = Instant.now();
+        Instant first = nextOccurrence(template, now);
+        if (first == null) {
+            throw new InvalidTemplateException(
+                    "Cron expression has no future occurrence: " + template.getCronExpression(), null
+            );
+        }
+        template.setNextRunAt(first);
+
+        TaskTemplate saved = templateRepository.save(template);
+        // occurrences before the next materializer run must not count as misfires
+        materialize(saved, now, now.plus(timerProperties.horizon()));
+        log.info("task_template_created templateId={} name={} nextRunAt={}",
+                saved.getId(), saved.getName(), saved.getNextRunAt());
+        return saved;
+    }
+
+    @Transactional(readOnly = true)
+    public TaskTemplate get(Long id) {
+        return templateRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Task template not found: " + id));
+    }
+
+    @Transactional(readOnly = true)
+    public List<TaskTemplate> list() {
+        return templateRepository.findAllByOrderByNameAsc();
+    }
+
+    // tasks already created from the template are left as they are
+    @Transactional
+    public void delete(Long id) {
+        templateRepository.delete(get(id));
+        log.info("task_template_deleted templateId={}", id);
+    }
+
+    // creates the tasks for all occurrences within the timer horizon; returns how many
+    @Transactional
+    public int materializeDue(Instant now) {
+        Instant until = now.plus(timerProperties.horizon());
+        List<TaskTemplate> due = templateRepository.lockDueTemplates(until, TEMPLATE_BATCH_SIZE);
+
+        int created = 0;
+        for (TaskTemplate template : due) {
+            created += materialize(template, now, until);
+        }
+        return created;
+    }
+
+    private int materialize(TaskTemplate template, Instant now, Instant until) {
+        Instant next = template.getNextRunAt();
+        int created = 0;
+
+        if (next.isBefore(now)) {
+            log.warn("task_template_misfire templateId={} missedSince={}", template.getId(), next);
+            createOccurrence(template, now);
+            created++;
+            next = nextOccurrence(template, now);
+        }
+
+        while (next != null && !next.isAfter(until) && created < MAX_OCCURRENCES_PER_RUN) {
+            createOccurrence(template, next);
+            created++;
+            next = nextOccurrence(template, next);
+        }
+
+        if (next == null) {
+            template.setEnabled(false);
+            log.info("task_template_exhausted templateId={}", template.getId());
+        } else {
+            template.setNextRunAt(next);
+        }
+
+        log.debug("task_template_materialized templateId={} created={} nextRunAt={}",
+                template.getId(), created, next);
+        return created;
+    }
+
+    private void createOccurrence(TaskTemplate template, Instant runAt) {
+        Task task = new Task(template.getTitle(), template.getDescription());
+        task.setQueue(template.getQueue());
+        task.setPriority(template.getPriority());
+        task.setRunAt(runAt);
+        taskService.createTask(task);
+    }
+
+    private static Instant nextOccurrence(TaskTemplate template, Instant after) {
+        CronExpression cron;
+        ZoneId zone;
+        try {
+            cron = CronExpression.parse(template.getCronExpression());
+            zone = ZoneId.of(template.getZoneId());
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new InvalidTemplateException(e.getMessage(), e);
+        }
+
+        ZonedDateTime next = cron.next(after.atZone(zone));
+        return next == null ? null : next.toInstant();
+    }
+}
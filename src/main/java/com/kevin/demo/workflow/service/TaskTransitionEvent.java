@@ -0,0 +1,26 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Instant;
+
+import com.kevin.demo.workflow.domain.TaskState;
+
+/**
+ * Published by {@link TaskService} for every recorded transition.
+ * Listeners that must only see committed state use {@code @TransactionalEventListener}.
+ *
+ * @param queue          queue of the task; lets listeners filter without loading it
+ * @param taskType       type of the task, likewise
+ * @param stateEnteredAt when the task entered {@code fromState} (its state_entered_at
+ *                       before this transition); null when unknown
+ * @param occurredAt     timestamp of this transition
+ */
+public record TaskTransitionEvent(
+        Long taskId,
+        String queue,
+        String taskType,
+        TaskState fromState,
+        TaskState toState,
+        String event,
+        Instant stateEnteredAt,
+        Instant occurredAt
+) {}
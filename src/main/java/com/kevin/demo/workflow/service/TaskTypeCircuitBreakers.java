@@ -0,0 +1,307 @@
+package com.kevin.demo.workflow.service;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.kevin.demo.workflow.domain.TaskState;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Failure-rate circuit breaker per task type (see {@link CircuitBreakerProperties}).
+ *
+ * Fed by the committed outcomes of PROCESSING tasks: COMPLETE counts as a success,
+ * FAIL and TIMEOUT (expired lease) as failures. Once the failure rate over the
+ * sliding window reaches the threshold the type's circuit opens and its tasks are
+ * no longer claimed: they stay QUEUED and keep their attempts, instead of burning
+ * them against a dependency that is down. After the open duration a few probe tasks
+ * are claimed; if they all complete the circuit closes, if one fails it opens again.
+ * A probe whose claim does not happen (the task was claimed elsewhere, or the claim
+ * rolled back) is {@link #release released} for another task; probes whose outcome
+ * never arrives (a lost lease) are handed out again after another open duration.
+ *
+ * Each node keeps its own circuits from the outcomes it records, so nothing is
+ * written to the database; with several nodes each one trips on its own share of
+ * the failures.
+ */
+@Component
+public class TaskTypeCircuitBreakers {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TaskTypeCircuitBreakers.class);
+
+    private static final int BUCKETS = 10;
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final CircuitBreakerProperties properties;
+    private final MeterRegistry registry;
+    private final long bucketMillis;
+
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    public TaskTypeCircuitBreakers(CircuitBreakerProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+        this.bucketMillis = Math.max(1, properties.window().toMillis() / BUCKETS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TaskTransitionEvent event) {
+        if (!properties.enabled() || event.fromState() != TaskState.PROCESSING) return;
+
+        Boolean success = switch (event.event()) {
+            case "COMPLETE" -> true;
+            case "FAIL", "TIMEOUT" -> false;
+            default -> null;
+        };
+        if (success == null) return;
+
+        record(event.taskType(), event.taskId(), success, System.currentTimeMillis());
+    }
+
+    void record(String taskType, Long taskId, boolean success, long now) {
+        breakers.computeIfAbsent(taskType, Breaker::new).record(taskId, success, now);
+    }
+
+    // types that must not be claimed right now; the claim query leaves their rows alone
+    public List<String> blockedTypes() {
+        return blockedTypes(System.currentTimeMillis());
+    }
+
+    List<String> blockedTypes(long now) {
+        if (!properties.enabled()) return List.of();
+
+        return breakers.values().stream()
+                .filter(breaker -> breaker.blocked(now))
+                .map(breaker -> breaker.taskType)
+                .toList();
+    }
+
+    // whether any circuit is not closed, i.e. tryClaim may refuse
+    public boolean anyTripped() {
+        if (!properties.enabled()) return false;
+        for (Breaker breaker : breakers.values()) {
+            if (breaker.state != State.CLOSED) return true;
+        }
+        return false;
+    }
+
+    // false while the type's circuit is open, or half-open with all probes out; a
+    // task claimed while half-open is one of the probes. Call it once the claim is
+    // otherwise certain, and release the probe if the claim does not happen after all;
+    // a probe taken in a transaction that rolls back is released by itself
+    public boolean tryClaim(String taskType, Long taskId) {
+        if (!tryClaim(taskType, taskId, System.currentTimeMillis())) return false;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive() && isProbe(taskType, taskId)) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        release(taskType, taskId);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    boolean tryClaim(String taskType, Long taskId, long now) {
+        if (!properties.enabled()) return true;
+
+        Breaker breaker = breakers.get(taskType);
+        return breaker == null || breaker.tryClaim(taskId, now);
+    }
+
+    // gives back the probe tryClaim handed out for a task that was not claimed after
+    // all; a no-op for any other task
+    public void release(String taskType, Long taskId) {
+        if (!properties.enabled()) return;
+
+        Breaker breaker = breakers.get(taskType);
+        if (breaker != null) {
+            breaker.release(taskId);
+        }
+    }
+
+    boolean isProbe(String taskType, Long taskId) {
+        Breaker breaker = breakers.get(taskType);
+        return breaker != null && breaker.isProbe(taskId);
+    }
+
+    public State state(String taskType) {
+        Breaker breaker = breakers.get(taskType);
+        return breaker == null ? State.CLOSED : breaker.state;
+    }
+
+    private final class Breaker {
+
+        private final String taskType;
+
+        // ring of per-bucket counts; newestBucket is the bucket index (millis / bucketMillis)
+        // of the latest outcome
+        private final int[] successes = new int[BUCKETS];
+        private final int[] failures = new int[BUCKETS];
+        private long newestBucket;
+
+        // written under the lock, read without it by the gauge and anyTripped
+        private volatile State state = State.CLOSED;
+        private long openUntil;
+
+        // probes handed out while half-open, and until when their outcomes are awaited
+        private final Set<Long> probes = new HashSet<>();
+        private int probesLeft;
+        private int probeSuccesses;
+        private long probesExpireAt;
+
+        private Breaker(String taskType) {
+            this.taskType = taskType;
+            Gauge.builder("workflow.circuit.state", this, breaker -> breaker.state.ordinal())
+                    .description("Circuit of a task type: 0 closed, 1 half-open, 2 open")
+                    .tag("task_type", taskType)
+                    .register(registry);
+        }
+
+        synchronized void record(Long taskId, boolean success, long now) {
+            switch (state) {
+                case CLOSED -> {
+                    advance(now);
+                    int slot = (int) (newestBucket % BUCKETS);
+                    if (success) {
+                        successes[slot]++;
+                    } else {
+                        failures[slot]++;
+                    }
+                    int failed = sum(failures);
+                    int calls = failed + sum(successes);
+                    if (calls >= properties.minimumCalls()
+                            && failed >= properties.failureThreshold() * calls) {
+                        open(now, "failures=" + failed + " calls=" + calls);
+                    }
+                }
+                case HALF_OPEN -> {
+                    // outcomes of tasks claimed before the circuit opened say nothing
+                    // about the dependency now
+                    if (!probes.remove(taskId)) return;
+                    if (!success) {
+                        open(now, "probe_failed taskId=" + taskId);
+                    } else if (++probeSuccesses >= properties.halfOpenProbes()) {
+                        close();
+                    }
+                }
+                case OPEN -> {
+                    // late outcomes of tasks claimed before the circuit opened
+                }
+            }
+        }
+
+        synchronized boolean blocked(long now) {
+            return switch (state) {
+                case CLOSED -> false;
+                case OPEN -> now < openUntil;
+                case HALF_OPEN -> probesLeft == 0 && now < probesExpireAt;
+            };
+        }
+
+        synchronized boolean tryClaim(Long taskId, long now) {
+            if (state == State.CLOSED) return true;
+            if (state == State.OPEN) {
+                if (now < openUntil) return false;
+                halfOpen(now);
+            }
+            if (now >= probesExpireAt) {
+                // the probes handed out never reported back
+                startProbes(now);
+            }
+            if (probesLeft == 0) return false;
+
+            probesLeft--;
+            probes.add(taskId);
+            return true;
+        }
+
+        synchronized void release(Long taskId) {
+            if (state == State.HALF_OPEN && probes.remove(taskId)) {
+                probesLeft++;
+            }
+        }
+
+        synchronized boolean isProbe(Long taskId) {
+            return state == State.HALF_OPEN && probes.contains(taskId);
+        }
+
+        private void open(long now, String reason) {
+            openUntil = now + properties.openDuration().toMillis();
+            probes.clear();
+            transition(State.OPEN);
+            log.warn("circuit_opened taskType={} {} openForMs={}",
+                    taskType, reason, properties.openDuration().toMillis());
+        }
+
+        private void halfOpen(long now) {
+            probeSuccesses = 0;
+            startProbes(now);
+            transition(State.HALF_OPEN);
+            log.info("circuit_half_open taskType={} probes={}", taskType, properties.halfOpenProbes());
+        }
+
+        private void startProbes(long now) {
+            probes.clear();
+            probesLeft = properties.halfOpenProbes();
+            probesExpireAt = now + properties.openDuration().toMillis();
+        }
+
+        private void close() {
+            Arrays.fill(successes, 0);
+            Arrays.fill(failures, 0);
+            probes.clear();
+            transition(State.CLOSED);
+            log.info("circuit_closed taskType={}", taskType);
+        }
+
+        private void transition(State to) {
+            state = to;
+            Counter.builder("workflow.circuit.transitions")
+                    .description("Circuit state changes per task type")
+                    .tag("task_type", taskType)
+                    .tag("state", to.name())
+                    .register(registry)
+                    .increment();
+        }
+
+        // clears the buckets that fell out of the window since the last outcome
+        private void advance(long now) {
+            long bucket = now / bucketMillis;
+            if (bucket - newestBucket >= BUCKETS) {
+                Arrays.fill(successes, 0);
+                Arrays.fill(failures, 0);
+            } else {
+                for (long b = newestBucket + 1; b <= bucket; b++) {
+                    successes[(int) (b % BUCKETS)] = 0;
+                    failures[(int) (b % BUCKETS)] = 0;
+                }
+            }
+            newestBucket = Math.max(newestBucket, bucket);
+        }
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) total += count;
+        return total;
+    }
+}
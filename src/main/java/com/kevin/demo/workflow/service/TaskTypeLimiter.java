@@ -0,0 +1,163 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kevin.demo.workflow.domain.TaskTypeLimit;
+import com.kevin.demo.workflow.repository.TaskRepository;
+import com.kevin.demo.workflow.repository.TaskTypeLimitRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cluster-wide claim limits per task type (see {@link TaskTypeProperties}).
+ *
+ * A claim transaction locks the {@code task_type_limits} rows of the limited types it
+ * may claim, refills their token buckets, and counts the type's PROCESSING tasks on
+ * the (state, task_type) index, so the in-flight cap is exact rather than a counter
+ * that could drift. The count is a locking read (FOR SHARE): a plain read would use
+ * the transaction's snapshot, which misses claims that committed while this one
+ * waited for the limit rows. Tasks over a limit are simply not claimed: they stay QUEUED,
+ * keep their attempt budget and are picked up once tokens or slots free up.
+ */
+@Component
+public class TaskTypeLimiter {
+
+    private final TaskTypeLimitRepository limitRepository;
+    private final TaskRepository taskRepository;
+    private final TaskTypeProperties properties;
+    private final MeterRegistry registry;
+
+    public TaskTypeLimiter(TaskTypeLimitRepository limitRepository,
+                           TaskRepository taskRepository,
+                           TaskTypeProperties properties,
+                           MeterRegistry registry) {
+        this.limitRepository = limitRepository;
+        this.taskRepository = taskRepository;
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    public boolean hasLimits() {
+        return !properties.limits().isEmpty();
+    }
+
+    // claim budget for the given types; the limit rows stay locked until the caller commits
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Budget acquire(Collection<String> taskTypes, Instant now) {
+        List<String> limited = taskTypes.stream()
+                .filter(properties.limits()::containsKey)
+                .distinct()
+                .sorted()
+                .toList();
+        if (limited.isEmpty()) return new Budget(Map.of(), Map.of());
+
+        List<TaskTypeLimit> rows = limitRepository.lockAll(limited);
+        if (rows.size() < limited.size()) {
+            Set<String> present = rows.stream().map(TaskTypeLimit::getTaskType).collect(Collectors.toSet());
+            for (String type : limited) {
+                if (!present.contains(type)) {
+                    limitRepository.insertIfMissing(type, properties.limits().get(type).burstOrDefault(), now);
+                }
+            }
+            rows = limitRepository.lockAll(limited);
+        }
+
+        List<String> capped = limited.stream()
+                .filter(type -> properties.limits().get(type).maxInFlight() != null)
+                .toList();
+        // read after the limit rows are locked: the last claim of the type has committed
+        // by now, but the transaction's snapshot may predate it, hence a locking read
+        Map<String, Long> inFlight = capped.isEmpty() ? Map.of()
+                : taskRepository.lockProcessingTaskTypes(capped).stream()
+                        .collect(Collectors.groupingBy(type -> type, Collectors.counting()));
+
+        Map<String, Integer> remaining = new HashMap<>();
+        Map<String, TaskTypeLimit> buckets = new HashMap<>();
+        for (TaskTypeLimit row : rows) {
+            TaskTypeProperties.Limit limit = properties.limits().get(row.getTaskType());
+            int available = Integer.MAX_VALUE;
+
+            if (limit.rate() != null) {
+                row.refill(limit.rate(), limit.burstOrDefault(), now);
+                available = (int) Math.floor(row.getTokens());
+                buckets.put(row.getTaskType(), row);
+            }
+            if (limit.maxInFlight() != null) {
+                long running = inFlight.getOrDefault(row.getTaskType(), 0L);
+                available = (int) Math.min(available, Math.max(0, limit.maxInFlight() - running));
+            }
+            remaining.put(row.getTaskType(), Math.max(0, available));
+        }
+        return new Budget(remaining, buckets);
+    }
+
+    /**
+     * What the current claim transaction may still take per limited type. Not thread
+     * safe; used by the one transaction that acquired it.
+     */
+    public final class Budget {
+
+        private final Map<String, Integer> remaining;
+        private final Map<String, TaskTypeLimit> buckets;
+
+        private Budget(Map<String, Integer> remaining, Map<String, TaskTypeLimit> buckets) {
+            this.remaining = remaining;
+            this.buckets = buckets;
+        }
+
+        // takes one slot for a task of `taskType`; false leaves the task QUEUED
+        public boolean tryTake(String taskType) {
+            Integer left = remaining.get(taskType);
+            if (left == null) return true;
+
+            if (left == 0) {
+                Counter.builder("workflow.claim.throttled")
+                        .description("Claims skipped because the task type was over its limit")
+                        .tag("task_type", taskType)
+                        .register(registry)
+                        .increment();
+                return false;
+            }
+
+            remaining.put(taskType, left - 1);
+            TaskTypeLimit bucket = buckets.get(taskType);
+            if (bucket != null) {
+                bucket.take(1);
+            }
+            return true;
+        }
+
+        // returns a slot taken for a task that was not claimed after all
+        public void giveBack(String taskType) {
+            Integer left = remaining.get(taskType);
+            if (left == null) return;
+
+            remaining.put(taskType, left + 1);
+            TaskTypeLimit bucket = buckets.get(taskType);
+            if (bucket != null) {
+                bucket.giveBack(1);
+            }
+        }
+
+        // limited types with nothing left; the claim query leaves their rows alone
+        public List<String> exhausted() {
+            List<String> types = new ArrayList<>();
+            remaining.forEach((type, left) -> {
+                if (left == 0) types.add(type);
+            });
+            return types;
+        }
+    }
+}
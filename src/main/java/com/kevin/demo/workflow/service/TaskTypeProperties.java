@@ -0,0 +1,34 @@
+package com.kevin.demo.workflow.service;
+
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @param limits claim limits per task type
+ *               ({@code workflow.task-types.limits.<type>.rate=20}); types not listed
+ *               are claimed as fast as workers take them
+ */
+@ConfigurationProperties("workflow.task-types")
+public record TaskTypeProperties(
+        Map<String, Limit> limits
+) {
+
+    public TaskTypeProperties {
+        limits = limits == null ? Map.of() : Map.copyOf(limits);
+    }
+
+    /**
+     * @param rate        claims per second across the cluster; null for no rate limit
+     * @param burst       claims allowed at once after an idle period; defaults to one
+     *                    second's worth of {@code rate}
+     * @param maxInFlight PROCESSING tasks of the type across the cluster; null for no cap
+     */
+    public record Limit(Double rate, Integer burst, Integer maxInFlight) {
+
+        public int burstOrDefault() {
+            if (burst != null) return Math.max(1, burst);
+            return rate == null ? 0 : Math.max(1, (int) Math.ceil(rate));
+        }
+    }
+}
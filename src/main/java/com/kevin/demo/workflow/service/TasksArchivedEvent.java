@@ -0,0 +1,6 @@
+package com.kevin.demo.workflow.service;
+
+import java.util.List;
+
+// tasks moved to the archive tables; published inside the archiving transaction
+public record TasksArchivedEvent(List<Long> taskIds) {}
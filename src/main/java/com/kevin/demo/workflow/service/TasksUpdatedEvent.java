@@ -0,0 +1,7 @@
+package com.kevin.demo.workflow.service;
+
+import java.util.Collection;
+
+// tasks whose fields a bulk UPDATE changed without a transition (lease renewals,
+// dependency counters); published inside the updating transaction
+public record TasksUpdatedEvent(Collection<Long> taskIds) {}
@@ -0,0 +1,22 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param tick           timer wheel resolution; a scheduled task is queued at most this late
+ * @param horizon        how far ahead SCHEDULED tasks are loaded into the wheel and cron
+ *                       templates are materialized into tasks
+ * @param reloadInterval how often the horizon window is reloaded from the run_at index;
+ *                       picks up tasks scheduled on other nodes
+ * @param maxLoaded      cap on tasks held in the wheel; the window is cut short when reached
+ */
+@ConfigurationProperties("workflow.timer")
+public record TimerProperties(
+        @DefaultValue("100ms") Duration tick,
+        @DefaultValue("10m") Duration horizon,
+        @DefaultValue("30s") Duration reloadInterval,
+        @DefaultValue("100000") int maxLoaded
+) {}
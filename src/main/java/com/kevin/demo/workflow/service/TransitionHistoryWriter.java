@@ -0,0 +1,273 @@
+package com.kevin.demo.workflow.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kevin.demo.workflow.domain.TaskTransition;
+import com.kevin.demo.workflow.domain.TaskTransitionOutbox;
+import com.kevin.demo.workflow.repository.OutboxRef;
+import com.kevin.demo.workflow.repository.TaskTransitionOutboxRepository;
+import com.kevin.demo.workflow.repository.TaskTransitionRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Writes the transition history, either inside the business transaction
+ * ({@code workflow.history.mode=SYNC}, the default) or through a transactional
+ * outbox ({@code ASYNC}).
+ *
+ * In async mode the business transaction only appends its transitions to
+ * {@code task_transition_outbox}, a table without secondary indexes or foreign
+ * keys, so a committed transition is as durable as the state change and a rolled
+ * back one never existed. A background thread on every node moves outbox rows to
+ * {@code task_transitions} in batches (SKIP LOCKED, so nodes never move the same
+ * rows), woken by local commits and polling for the rest. The history therefore
+ * trails the task state by one move.
+ *
+ * A batch that fails on a database or connection error is retried with backoff.
+ * One that violates a constraint (e.g. its task was archived meanwhile) is split
+ * until the offending rows are isolated; those get {@code failed_at} and stay in
+ * the outbox for inspection instead of stalling the writer.
+ */
+@Component
+public class TransitionHistoryWriter implements SmartLifecycle {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TransitionHistoryWriter.class);
+
+    private static final long MIN_RETRY_DELAY_MILLIS = 1_000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+
+    private final TaskTransitionRepository transitionRepository;
+    private final TaskTransitionOutboxRepository outboxRepository;
+    private final TaskCacheInvalidator cacheInvalidator;
+    private final TransactionTemplate transactionTemplate;
+    private final HistoryProperties properties;
+    private final Counter failedRows;
+
+    // set by commits that wrote outbox rows, so the writer does not wait out the poll interval
+    private final Object wakeUp = new Object();
+    private boolean signalled;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public TransitionHistoryWriter(TaskTransitionRepository transitionRepository,
+                                   TaskTransitionOutboxRepository outboxRepository,
+                                   TaskCacheInvalidator cacheInvalidator,
+                                   PlatformTransactionManager transactionManager,
+                                   HistoryProperties properties,
+                                   MeterRegistry registry) {
+        this.transitionRepository = transitionRepository;
+        this.outboxRepository = outboxRepository;
+        this.cacheInvalidator = cacheInvalidator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.properties = properties;
+
+        Gauge.builder("workflow.history.pending", outboxRepository, TaskTransitionOutboxRepository::countPending)
+                .description("Committed transitions in the outbox, waiting for the history writer")
+                .register(registry);
+        this.failedRows = Counter.builder("workflow.history.failed")
+                .description("Outbox transitions that could not be moved to the history")
+                .register(registry);
+    }
+
+    public void record(TaskTransition transition) {
+        record(List.of(transition));
+    }
+
+    public void record(List<TaskTransition> transitions) {
+        if (properties.mode() == HistoryProperties.Mode.SYNC) {
+            transitionRepository.saveAll(transitions);
+            return;
+        }
+        if (transitions.isEmpty()) return;
+
+        outboxRepository.saveAll(transitions.stream().map(TaskTransitionOutbox::new).toList());
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            signal();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                signal();
+            }
+        });
+    }
+
+    private void signal() {
+        synchronized (wakeUp) {
+            if (signalled) return;
+            signalled = true;
+            wakeUp.notifyAll();
+        }
+    }
+
+    private void loop() {
+        long retryDelay = MIN_RETRY_DELAY_MILLIS;
+
+        while (running) {
+            int moved;
+            try {
+                moved = moveNextBatch();
+                retryDelay = MIN_RETRY_DELAY_MILLIS;
+            } catch (RuntimeException e) {
+                log.error("history_flush_error retryInMs={}", retryDelay, e);
+                if (!sleep(retryDelay)) return;
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MILLIS);
+                continue;
+            }
+
+            // after switching back to SYNC, the writer only empties what ASYNC left behind
+            if (moved == 0 && properties.mode() == HistoryProperties.Mode.SYNC) return;
+
+            if (moved < properties.batchSize() && !awaitSignal()) return;
+        }
+    }
+
+    // moves up to batchSize outbox rows; returns how many were taken off the queue
+    private int moveNextBatch() {
+        List<OutboxRef> locked = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                locked.addAll(outboxRepository.lockNext(properties.batchSize()));
+                move(locked);
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (locked.isEmpty()) throw e;
+            if (locked.size() == 1) {
+                markFailed(locked.get(0), e);
+            } else {
+                log.warn("history_flush_rejected count={} error={}",
+                        locked.size(), e.getMostSpecificCause().toString());
+                moveOrSplit(locked);
+            }
+        }
+
+        if (!locked.isEmpty()) {
+            evict(locked);
+            log.debug("history_flush count={}", locked.size());
+        }
+        return locked.size();
+    }
+
+    // a rejected batch is retried in halves, down to single rows, which are marked failed
+    private void moveOrSplit(List<OutboxRef> refs) {
+        int middle = refs.size() / 2;
+        for (List<OutboxRef> part : List.of(refs.subList(0, middle), refs.subList(middle, refs.size()))) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        move(outboxRepository.lockByIds(part.stream().map(OutboxRef::getId).toList())));
+            } catch (DataIntegrityViolationException e) {
+                if (part.size() > 1) {
+                    moveOrSplit(part);
+                } else {
+                    markFailed(part.get(0), e);
+                }
+            }
+        }
+    }
+
+    private void markFailed(OutboxRef ref, DataIntegrityViolationException e) {
+        String error = e.getMostSpecificCause().toString();
+        transactionTemplate.executeWithoutResult(status ->
+                outboxRepository.markFailed(ref.getId(), error, Instant.now()));
+        failedRows.increment();
+        log.error("history_outbox_failed id={} taskId={} error={}", ref.getId(), ref.getTaskId(), error);
+    }
+
+    private void move(List<OutboxRef> refs) {
+        if (refs.isEmpty()) return;
+
+        List<Long> ids = refs.stream().map(OutboxRef::getId).toList();
+        outboxRepository.copyToHistory(ids);
+        outboxRepository.deleteByIds(ids);
+    }
+
+    private void evict(List<OutboxRef> refs) {
+        cacheInvalidator.evictTransitions(refs.stream().map(OutboxRef::getTaskId).distinct().toList());
+    }
+
+    // false once interrupted
+    private boolean awaitSignal() {
+        synchronized (wakeUp) {
+            try {
+                if (!signalled && running) {
+                    wakeUp.wait(properties.pollInterval().toMillis());
+                }
+                signalled = false;
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // also started in SYNC mode, to move rows a previous ASYNC run left in the outbox
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::loop, "transition-history-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // rows still in the outbox are durable; the next start (or another node) moves them
+    @Override
+    public void stop() {
+        running = false;
+        signal();
+        if (thread == null) return;
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("history_writer_stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // stop after the pollers (default phase)
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 1;
+    }
+}
@@ -0,0 +1,67 @@
+package com.kevin.demo.workflow.worker;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.kevin.demo.workflow.service.NodeIdentity;
+import com.kevin.demo.workflow.service.TaskService;
+
+/**
+ * Renews the leases of every task this node's execution engine holds, in batched
+ * UPDATEs, so long-running tasks are never reaped while the node is alive. Tasks
+ * whose lease could not be renewed are abandoned by the engine.
+ */
+@Component
+public class LeaseHeartbeat {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(LeaseHeartbeat.class);
+
+    // ids per UPDATE ... WHERE id IN (...)
+    static final int BATCH_SIZE = 500;
+
+    private final TaskService taskService;
+    private final TaskExecutionEngine executionEngine;
+    private final NodeIdentity node;
+
+    public LeaseHeartbeat(TaskService taskService,
+                          TaskExecutionEngine executionEngine,
+                          NodeIdentity node) {
+        this.taskService = taskService;
+        this.executionEngine = executionEngine;
+        this.node = node;
+    }
+
+    @Scheduled(fixedDelayString = "${workflow.lease.heartbeat-interval:10s}")
+    public void renew() {
+        List<Long> ids = new ArrayList<>(executionEngine.inFlightTaskIds());
+        if (ids.isEmpty()) return;
+
+        Set<Long> renewed = new HashSet<>();
+        for (int start = 0; start < ids.size(); start += BATCH_SIZE) {
+            List<Long> batch = ids.subList(start, Math.min(start + BATCH_SIZE, ids.size()));
+            try {
+                renewed.addAll(taskService.renewLeases(node.id(), batch));
+            } catch (Exception e) {
+                // the next beat retries; leases outlive several missed beats
+                log.warn("lease_heartbeat_error count={}", batch.size(), e);
+                return;
+            }
+        }
+
+        // lost leases: finished between the snapshot and the update (no longer in the
+        // engine, so abandoning them is a no-op), or reaped and possibly claimed elsewhere
+        List<Long> lost = ids.stream().filter(id -> !renewed.contains(id)).toList();
+        if (!lost.isEmpty()) {
+            executionEngine.abandon(lost);
+        }
+        log.debug("lease_heartbeat owner={} renewed={} lost={}", node.id(), renewed.size(), lost.size());
+    }
+}
@@ -0,0 +1,30 @@
+package com.kevin.demo.workflow.worker;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.kevin.demo.workflow.domain.Task;
+
+// fallback handler: simulate fail first attempt, then complete
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class SimulatedTaskHandler implements TaskHandler {
+
+    @Override
+    public String name() {
+        return "simulated";
+    }
+
+    @Override
+    public boolean supports(Task task) {
+        return true;
+    }
+
+    @Override
+    public void handle(Task task) {
+        if (task.getAttemptCount() == 0) {
+            throw new IllegalStateException("Simulated failure on first attempt");
+        }
+    }
+}
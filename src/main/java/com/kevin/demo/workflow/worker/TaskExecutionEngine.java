@@ -0,0 +1,296 @@
+package com.kevin.demo.workflow.worker;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.kevin.demo.workflow.domain.Task;
+import com.kevin.demo.workflow.service.NodeIdentity;
+import com.kevin.demo.workflow.service.TaskService;
+
+/**
+ * Runs claimed PROCESSING tasks concurrently on a bounded executor.
+ *
+ * The scheduler only claims as many tasks as {@link #availableCapacity()} allows,
+ * so the number of claimed-but-unfinished tasks on this node never exceeds
+ * {@code workflow.worker.max-in-flight}. Tasks whose handler is at its own
+ * concurrency limit wait in memory without holding a thread.
+ *
+ * A task whose lease was lost (reaped, or claimed again) is {@link #abandon abandoned}:
+ * its handler thread is interrupted, or it never starts if it was still waiting, and
+ * its outcome is discarded, so it cannot complete or fail the task's next attempt.
+ */
+@Component
+public class TaskExecutionEngine implements DisposableBean {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TaskExecutionEngine.class);
+
+    private static final String THREAD_PREFIX = "task-worker-";
+
+    private final TaskService taskService;
+    private final NodeIdentity node;
+    private final List<TaskHandler> handlers;
+    private final int maxInFlight;
+    private final TaskExecutor executor;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // claimed and not yet finished, running or waiting; their leases are renewed by LeaseHeartbeat
+    private final Map<Long, Execution> executions = new ConcurrentHashMap<>();
+    private final Map<TaskHandler, HandlerSlots> slots = new HashMap<>();
+
+    public TaskExecutionEngine(TaskService taskService,
+                               NodeIdentity node,
+                               List<TaskHandler> handlers,
+                               WorkerProperties properties) {
+        this.taskService = taskService;
+        this.node = node;
+        this.handlers = handlers;
+        this.maxInFlight = properties.maxInFlight();
+        this.executor = createExecutor(properties);
+
+        for (TaskHandler handler : handlers) {
+            slots.put(handler, new HandlerSlots(handler.maxConcurrency()));
+        }
+    }
+
+    public int availableCapacity() {
+        return Math.max(0, maxInFlight - inFlight.get());
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public Set<Long> inFlightTaskIds() {
+        return Set.copyOf(executions.keySet());
+    }
+
+    // hands a task the caller has already claimed (state PROCESSING) to its handler
+    public void dispatch(Task task) {
+        inFlight.incrementAndGet();
+        Execution execution = new Execution(task);
+        Execution previous = executions.put(task.getId(), execution);
+        if (previous != null) {
+            // claimed again by this node after its lease ran out
+            previous.abandon();
+        }
+
+        TaskHandler handler = findHandler(task);
+        if (handler == null) {
+            finish(execution, null, new IllegalStateException("No handler for task: " + task.getId()));
+            return;
+        }
+
+        HandlerSlots handlerSlots = slots.get(handler);
+        if (handlerSlots.tryAcquire(execution)) {
+            submit(handler, execution);
+        } else {
+            log.debug("task_dispatch_wait taskId={} handler={}", task.getId(), handler.name());
+        }
+    }
+
+    // stops the given tasks, whose leases this node no longer holds
+    public void abandon(Collection<Long> taskIds) {
+        for (Long taskId : taskIds) {
+            Execution execution = executions.remove(taskId);
+            if (execution != null) {
+                execution.abandon();
+                log.warn("task_abandoned taskId={} reason=lease_lost", taskId);
+            }
+        }
+    }
+
+    private void submit(TaskHandler handler, Execution execution) {
+        try {
+            executor.execute(() -> run(handler, execution));
+        } catch (RuntimeException e) {
+            // executor shut down; the task stays PROCESSING until it is timed out, so
+            // its lease must no longer be renewed
+            log.warn("task_dispatch_rejected taskId={}", execution.task.getId(), e);
+            executions.remove(execution.task.getId(), execution);
+            release(handler);
+        }
+    }
+
+    private void run(TaskHandler handler, Execution execution) {
+        Throwable error = null;
+        try {
+            if (!execution.start()) return;
+            try {
+                handler.handle(execution.task);
+            } catch (Throwable e) {
+                // Errors too (StackOverflowError, NoClassDefFoundError, ...): a task left
+                // in `executions` would have its lease renewed forever
+                error = e;
+            } finally {
+                execution.end();
+            }
+
+            if (error instanceof Error) {
+                log.error("task_handler_crashed taskId={} handler={}", execution.task.getId(), handler.name(), error);
+            }
+            // takes the execution out before anything else, so even if reporting fails
+            // the lease is no longer renewed and the reaper times the task out
+            finish(execution, handler, error);
+            if (error instanceof VirtualMachineError vmError) {
+                throw vmError;
+            }
+        } finally {
+            release(handler);
+        }
+    }
+
+    private void finish(Execution execution, TaskHandler handler, Throwable error) {
+        Task task = execution.task;
+        // whoever removes the execution reports it; an abandoned one is already gone
+        if (!executions.remove(task.getId(), execution)) {
+            log.info("task_outcome_discarded taskId={} failed={}", task.getId(), error != null);
+            if (handler == null) {
+                inFlight.decrementAndGet();
+            }
+            return;
+        }
+
+        try {
+            if (error == null) {
+                taskService.complete(task.getId(), node.id());
+                log.info("task_completed taskId={} attempt={}", task.getId(), task.getAttemptCount());
+            } else {
+                String message = error.getMessage() != null
+                        ? error.getMessage()
+                        : error.getClass().getName();
+                taskService.fail(task.getId(), message, node.id(), error.getClass().getName());
+                log.info("task_failed taskId={} attempt={} reason={}",
+                        task.getId(), task.getAttemptCount(), message);
+            }
+        } catch (IllegalStateException e) {
+            // lease expired and the task was reaped, or it was finished elsewhere, while the handler ran
+            log.warn("task_processing_skip taskId={} reason={}", task.getId(), e.getMessage());
+        } catch (Exception e) {
+            log.error("task_processing_error taskId={} handler={}",
+                    task.getId(), handler == null ? null : handler.name(), e);
+        } finally {
+            if (handler == null) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private void release(TaskHandler handler) {
+        inFlight.decrementAndGet();
+
+        Execution next = slots.get(handler).releaseAndPollWaiting();
+        if (next != null) {
+            submit(handler, next);
+        }
+    }
+
+    private TaskHandler findHandler(Task task) {
+        for (TaskHandler handler : handlers) {
+            if (handler.supports(task)) {
+                return handler;
+            }
+        }
+        return null;
+    }
+
+    private static TaskExecutor createExecutor(WorkerProperties properties) {
+        if (properties.virtualThreads() && Runtime.version().feature() >= 21) {
+            log.info("task_engine_executor type=virtual");
+            return new VirtualThreadTaskExecutor(THREAD_PREFIX);
+        }
+
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setThreadNamePrefix(THREAD_PREFIX);
+        pool.setCorePoolSize(properties.platformPoolSize());
+        pool.setMaxPoolSize(properties.platformPoolSize());
+        pool.initialize();
+
+        log.info("task_engine_executor type=platform size={}", properties.platformPoolSize());
+        return pool;
+    }
+
+    @Override
+    public void destroy() {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        }
+    }
+
+    // one dispatch of a task; the thread is set while its handler runs
+    private static final class Execution {
+
+        private final Task task;
+        private Thread thread;
+        private boolean abandoned;
+
+        Execution(Task task) {
+            this.task = task;
+        }
+
+        // false if abandoned before it started
+        synchronized boolean start() {
+            if (abandoned) return false;
+            thread = Thread.currentThread();
+            return true;
+        }
+
+        synchronized void end() {
+            thread = null;
+            // an interrupt that came too late must not hit the thread's next task
+            Thread.interrupted();
+        }
+
+        synchronized void abandon() {
+            abandoned = true;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    // per-handler concurrency limit with an in-memory wait queue
+    private static final class HandlerSlots {
+
+        private final int limit;
+        private final Queue<Execution> waiting = new ArrayDeque<>();
+        private int running;
+
+        HandlerSlots(int limit) {
+            this.limit = limit;
+        }
+
+        synchronized boolean tryAcquire(Execution execution) {
+            if (running < limit) {
+                running++;
+                return true;
+            }
+            waiting.add(execution);
+            return false;
+        }
+
+        // frees a slot, or hands it straight to the next waiting task
+        synchronized Execution releaseAndPollWaiting() {
+            Execution next = waiting.poll();
+            if (next == null) {
+                running--;
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.kevin.demo.workflow.worker;
+
+import com.kevin.demo.workflow.domain.Task;
+
+/**
+ * Does the actual work for a claimed task.
+ *
+ * Handlers are Spring beans; the execution engine picks the first handler (in
+ * {@link org.springframework.core.annotation.Order} order) that supports a task.
+ * Returning normally completes the task, throwing fails it.
+ *
+ * If the node loses the task's lease while the handler runs, the handler thread
+ * is interrupted and its outcome discarded; long handlers should honour interrupts.
+ */
+public interface TaskHandler {
+
+    // name used in logs
+    String name();
+
+    boolean supports(Task task);
+
+    // max tasks this handler runs at once on this node
+    default int maxConcurrency() {
+        return Integer.MAX_VALUE;
+    }
+
+    void handle(Task task) throws Exception;
+}
@@ -0,0 +1,16 @@
+package com.kevin.demo.workflow.worker;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param maxInFlight      claimed tasks this node runs or holds at once
+ * @param virtualThreads   run handlers on virtual threads when the JDK supports them (21+)
+ * @param platformPoolSize worker threads used when virtual threads are unavailable or disabled
+ */
+@ConfigurationProperties("workflow.worker")
+public record WorkerProperties(
+        @DefaultValue("1000") int maxInFlight,
+        @DefaultValue("true") boolean virtualThreads,
+        @DefaultValue("32") int platformPoolSize
+) {}
@@ -0,0 +1,56 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Sets {@code tasks.shard}, added by V13 with a default of 0, to {@code id mod 64}.
+ *
+ * One UPDATE over the whole table would lock every row of it for as long as it
+ * runs, stalling the nodes still serving on the previous version. Instead each
+ * statement covers one primary key range of {@link #CHUNK_SIZE} ids and commits on
+ * its own, like an archival batch, so only that range is locked at a time.
+ */
+public class V13_1__Backfill_task_shards extends BaseJavaMigration {
+
+    private static final long CHUNK_SIZE = 10_000;
+
+    // each chunk commits on its own
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+
+        long minId;
+        long maxId;
+        try (Statement statement = connection.createStatement();
+             ResultSet range = statement.executeQuery("select min(id), max(id) from tasks")) {
+            range.next();
+            minId = range.getLong(1);
+            if (range.wasNull()) return;
+            maxId = range.getLong(2);
+        }
+
+        try (PreparedStatement update = connection.prepareStatement(
+                "update tasks set shard = mod(id, 64) where id >= ? and id < ?")) {
+            for (long from = minId; from <= maxId; from += CHUNK_SIZE) {
+                update.setLong(1, from);
+                update.setLong(2, from + CHUNK_SIZE);
+                update.executeUpdate();
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+            }
+        }
+    }
+}
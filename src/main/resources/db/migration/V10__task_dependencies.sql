@@ -0,0 +1,18 @@
+-- parents of a task that have not completed yet; the task is queued when it reaches 0
+alter table tasks add column pending_dependencies int not null default 0;
+
+-- task_id runs after depends_on_task_id has completed
+create table task_dependencies (
+    id bigint not null,
+    task_id bigint not null,
+    depends_on_task_id bigint not null,
+    primary key (id),
+    constraint fk_task_dependencies_task foreign key (task_id) references tasks (id),
+    constraint fk_task_dependencies_depends_on foreign key (depends_on_task_id) references tasks (id),
+    -- children of a completing parent: where depends_on_task_id = ?
+    constraint uk_task_dependencies_edge unique (depends_on_task_id, task_id)
+) engine=InnoDB;
+
+create index idx_task_dependencies_task_id on task_dependencies (task_id);
+
+insert into id_generators (name, next_val) values ('task_dependencies', 1);
@@ -0,0 +1,16 @@
+-- responses of requests sent with an Idempotency-Key, replayed for retries of the same key
+create table idempotency_keys (
+    id bigint not null,
+    scope varchar(64) not null,
+    idem_key varchar(128) not null,
+    fingerprint varchar(64) not null,
+    response_body mediumtext not null,
+    created_at timestamp(6) not null,
+    primary key (id),
+    constraint uk_idempotency_keys_scope_key unique (scope, idem_key)
+) engine=InnoDB;
+
+-- retention cleanup: where created_at < ?
+create index idx_idempotency_keys_created_at on idempotency_keys (created_at);
+
+insert into id_generators (name, next_val) values ('idempotency_keys', 1);
@@ -0,0 +1,37 @@
+-- terminal tasks and their history older than workflow.archive.retention are moved
+-- here in small batches, keeping the hot tables (and their indexes) bounded
+create table tasks_archive (
+    id bigint not null,
+    version bigint,
+    state varchar(32) not null,
+    title varchar(255) not null,
+    description text,
+    priority int not null,
+    queue_name varchar(64) not null,
+    attempt_count int not null,
+    max_attempts int not null,
+    last_error text,
+    next_attempt_at timestamp(6),
+    run_at timestamp(6),
+    created_at timestamp(6) not null,
+    updated_at timestamp(6) not null,
+    archived_at timestamp(6) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_tasks_archive_archived_at on tasks_archive (archived_at);
+
+create table task_transitions_archive (
+    id bigint not null,
+    task_id bigint not null,
+    from_state varchar(32),
+    to_state varchar(32) not null,
+    event varchar(255) not null,
+    message text,
+    created_at timestamp(6) not null,
+    archived_at timestamp(6) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_task_transitions_archive_task_id on task_transitions_archive (task_id, created_at);
+create index idx_task_transitions_archive_archived_at on task_transitions_archive (archived_at);
@@ -0,0 +1,35 @@
+-- shard of a task: id mod 64, fixed at insert (see Task.SHARDS). Nodes lease
+-- disjoint sets of shards and run the maintenance scans only over their own.
+-- Existing rows are backfilled by V13_1 in primary key chunks, not one table-wide UPDATE.
+alter table tasks add column shard int not null default 0;
+
+-- the scans walk state + time in order and filter the owned shards inside the index,
+-- so they still stop after the first 50 matches instead of sorting every due row
+drop index idx_tasks_state_next_attempt_at on tasks;
+create index idx_tasks_state_next_attempt_at on tasks (state, next_attempt_at, shard);
+drop index idx_tasks_state_lease_expires_at on tasks;
+create index idx_tasks_state_lease_expires_at on tasks (state, lease_expires_at, shard);
+
+-- live scheduler nodes; the shard target per node is 64 / live nodes
+create table scheduler_nodes (
+    node_id varchar(64) not null,
+    heartbeat_at timestamp(6) not null,
+    primary key (node_id)
+) engine=InnoDB;
+
+create table shard_leases (
+    shard int not null,
+    owner varchar(64),
+    expires_at timestamp(6),
+    primary key (shard)
+) engine=InnoDB;
+
+insert into shard_leases (shard) values
+    (0), (1), (2), (3), (4), (5), (6), (7),
+    (8), (9), (10), (11), (12), (13), (14), (15),
+    (16), (17), (18), (19), (20), (21), (22), (23),
+    (24), (25), (26), (27), (28), (29), (30), (31),
+    (32), (33), (34), (35), (36), (37), (38), (39),
+    (40), (41), (42), (43), (44), (45), (46), (47),
+    (48), (49), (50), (51), (52), (53), (54), (55),
+    (56), (57), (58), (59), (60), (61), (62), (63);
@@ -0,0 +1,17 @@
+-- kind of work (which downstream its handler calls); rate limits and in-flight caps
+-- are configured per type, see workflow.task-types
+alter table tasks add column task_type varchar(64) not null default 'default';
+alter table tasks_archive add column task_type varchar(64) not null default 'default';
+
+-- claim time: distinct task_type where state = 'QUEUED', and the in-flight count
+-- where state = 'PROCESSING' and task_type = ?
+create index idx_tasks_state_task_type on tasks (state, task_type);
+
+-- token bucket per rate-limited type; claims lock the row, which also serializes
+-- the in-flight check for the type across nodes
+create table task_type_limits (
+    task_type varchar(64) not null,
+    tokens double not null,
+    refilled_at timestamp(6) not null,
+    primary key (task_type)
+) engine=InnoDB;
@@ -0,0 +1,7 @@
+-- retry policy named at creation (workflow.retry.policies); null uses the task
+-- type's policy, or the default
+alter table tasks add column retry_policy varchar(64);
+alter table tasks_archive add column retry_policy varchar(64);
+
+-- delay before the pending retry; the next decorrelated-jitter delay grows from it
+alter table tasks add column retry_delay_ms bigint;
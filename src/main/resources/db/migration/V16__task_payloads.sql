@@ -0,0 +1,16 @@
+-- payload and result of a task, kept out of tasks so scans and claims read narrow
+-- rows. Bodies above workflow.payload.compress-threshold are zstd-compressed; above
+-- workflow.payload.offload-threshold they live in the blob store and data is null
+create table task_payloads (
+    task_id bigint not null,
+    kind varchar(16) not null,
+    content_type varchar(128) not null,
+    encoding varchar(16) not null,
+    size bigint not null,
+    stored_size bigint not null,
+    data longblob,
+    blob_key varchar(255),
+    updated_at timestamp(6) not null,
+    primary key (task_id, kind),
+    constraint fk_task_payloads_task foreign key (task_id) references tasks (id)
+) engine=InnoDB;
@@ -0,0 +1,17 @@
+-- transitions recorded with workflow.history.mode=ASYNC: inserted in the business
+-- transaction (no secondary indexes, no foreign key, so the insert is cheap) and
+-- moved to task_transitions in batches by TransitionHistoryWriter. ids come from
+-- the task_transitions id block and are kept by the move. A row that cannot be
+-- moved (e.g. its task was archived) gets failed_at and is left for inspection
+create table task_transition_outbox (
+    id bigint not null,
+    task_id bigint not null,
+    from_state varchar(32),
+    to_state varchar(32) not null,
+    event varchar(255) not null,
+    message text,
+    created_at timestamp(6) not null,
+    failed_at timestamp(6),
+    last_error text,
+    primary key (id)
+) engine=InnoDB;
@@ -0,0 +1,7 @@
+-- when the task entered its current state, and when it entered the state it left
+-- last; written by every state change, so time-in-state does not depend on the
+-- transition history, which trails the state with workflow.history.mode=ASYNC.
+-- Rows written before this migration start with nulls (no full-table backfill);
+-- their first transition reports no time in state
+alter table tasks add column state_entered_at timestamp(6) null;
+alter table tasks add column previous_state_entered_at timestamp(6) null;
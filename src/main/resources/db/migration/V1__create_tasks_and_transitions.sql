@@ -0,0 +1,28 @@
+-- Schema as previously generated by hibernate ddl-auto=update.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate).
+
+create table tasks (
+    id bigint not null auto_increment,
+    version bigint,
+    state varchar(32) not null,
+    title varchar(255) not null,
+    description text,
+    attempt_count integer not null,
+    max_attempts integer not null,
+    last_error text,
+    created_at timestamp(6) not null,
+    updated_at timestamp(6) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table task_transitions (
+    id bigint not null auto_increment,
+    task_id bigint not null,
+    from_state varchar(32),
+    to_state varchar(32) not null,
+    event varchar(255) not null,
+    message text,
+    created_at timestamp(6) not null,
+    primary key (id),
+    constraint fk_task_transitions_task foreign key (task_id) references tasks (id)
+) engine=InnoDB;
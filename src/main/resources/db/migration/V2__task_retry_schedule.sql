@@ -0,0 +1,15 @@
+-- hibernate created the state columns as MySQL enums; new states must not need DDL
+alter table tasks modify state varchar(32) not null;
+alter table task_transitions modify from_state varchar(32);
+alter table task_transitions modify to_state varchar(32) not null;
+
+alter table tasks add column next_attempt_at timestamp(6) null;
+
+-- FAILED rows written before next_attempt_at existed
+update tasks set state = 'DEAD_LETTER'
+where state = 'FAILED' and attempt_count >= max_attempts;
+
+update tasks set next_attempt_at = updated_at
+where state = 'FAILED';
+
+create index idx_tasks_state_next_attempt_at on tasks (state, next_attempt_at);
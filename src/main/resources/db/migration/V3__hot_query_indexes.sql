@@ -0,0 +1,5 @@
+-- scheduler scans: where state = ? order by updated_at
+create index idx_tasks_state_updated_at on tasks (state, updated_at);
+
+-- transition history: where task_id = ? order by created_at
+create index idx_task_transitions_task_id_created_at on task_transitions (task_id, created_at);
@@ -0,0 +1,14 @@
+-- ids are reserved in blocks of 50 (see IdBlockAllocator) so inserts can be JDBC-batched;
+-- next_val is the first id of the next block
+create table id_generators (
+    name varchar(255) not null,
+    next_val bigint,
+    primary key (name)
+) engine=InnoDB;
+
+insert into id_generators (name, next_val)
+select 'tasks', coalesce(max(id), 0) + 1 from tasks;
+
+insert into id_generators (name, next_val)
+select 'task_transitions', coalesce(max(id), 0) + 1 from task_transitions;
+
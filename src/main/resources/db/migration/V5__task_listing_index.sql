@@ -0,0 +1,2 @@
+-- unfiltered task listing pages through tasks by (updated_at, id)
+create index idx_tasks_updated_at on tasks (updated_at);
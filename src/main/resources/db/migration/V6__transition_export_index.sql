@@ -0,0 +1,2 @@
+-- incremental transition export: where created_at > ? order by created_at, id
+create index idx_task_transitions_created_at on task_transitions (created_at);
@@ -0,0 +1,11 @@
+-- per-claim leases replace the fixed 10 minute PROCESSING timeout
+alter table tasks add column lease_owner varchar(64);
+alter table tasks add column lease_expires_at timestamp(6);
+
+-- tasks claimed before leases existed keep their old 10 minute deadline
+update tasks
+set lease_expires_at = timestampadd(second, 600, updated_at)
+where state = 'PROCESSING';
+
+-- lease reaper: where state = 'PROCESSING' and lease_expires_at < ?
+create index idx_tasks_state_lease_expires_at on tasks (state, lease_expires_at);
@@ -0,0 +1,7 @@
+-- claim order: fair share across queue_name, then priority (higher first), then age
+alter table tasks add column priority int not null default 0;
+alter table tasks add column queue_name varchar(64) not null default 'default';
+
+-- per-queue claim: where state = 'QUEUED' and queue_name = ? order by priority desc, updated_at
+-- (the descending column lets the mixed-direction order come straight off the index)
+create index idx_tasks_state_queue_priority on tasks (state, queue_name, priority desc, updated_at);
@@ -0,0 +1,27 @@
+-- delayed tasks wait in SCHEDULED until run_at, then the timer wheel queues them
+alter table tasks add column run_at timestamp(6);
+
+-- timer wheel load: where state = 'SCHEDULED' and run_at <= ? order by run_at
+create index idx_tasks_state_run_at on tasks (state, run_at);
+
+-- recurring tasks; next_run_at is the next occurrence not yet created as a task
+create table task_templates (
+    id bigint not null auto_increment,
+    version bigint,
+    name varchar(128) not null,
+    title varchar(255) not null,
+    description text,
+    queue_name varchar(64) not null,
+    priority int not null,
+    cron_expression varchar(128) not null,
+    zone_id varchar(64) not null,
+    enabled boolean not null,
+    next_run_at timestamp(6) not null,
+    created_at timestamp(6) not null,
+    updated_at timestamp(6) not null,
+    primary key (id),
+    constraint uk_task_templates_name unique (name)
+) engine=InnoDB;
+
+-- materializer: where enabled = true and next_run_at <= ?
+create index idx_task_templates_enabled_next_run_at on task_templates (enabled, next_run_at);
@@ -0,0 +1,72 @@
+package com.kevin.demo.workflow.scheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class HierarchicalTimerWheelTest {
+
+    private static final long TICK = 100;
+
+    @Test
+    void firesOnTheTickOfTheDeadlineNeverEarly() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 4, 0);
+        wheel.schedule("a", 250);
+
+        assertThat(wheel.advance(200)).isEmpty();
+        assertThat(wheel.advance(299)).isEmpty();
+        assertThat(wheel.advance(300)).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void overdueDeadlineFiresOnNextTick() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 4, 10_000);
+        wheel.schedule("late", 0);
+
+        assertThat(wheel.advance(10_100)).containsExactly("late");
+    }
+
+    @Test
+    void cascadesFromHigherLevelsInDeadlineOrder() {
+        long start = 123_456;
+        HierarchicalTimerWheel<Long> wheel = new HierarchicalTimerWheel<>(TICK, 4, start);
+
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            // up to ~2 hours out, so every level is used
+            long deadline = start + random.nextLong(7_200_000);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = start; now <= start + 7_300_000; now += 1_000) {
+            for (Long deadline : wheel.advance(now)) {
+                assertThat(deadline).isLessThanOrEqualTo(now);
+                assertThat(now - deadline).isLessThan(1_000 + TICK);
+                fired.add(deadline);
+            }
+        }
+
+        // order is kept per tick; items within one tick come out as scheduled
+        assertThat(fired).hasSize(deadlines.size());
+        assertThat(fired.stream().map(deadline -> -Math.floorDiv(-deadline, TICK)).toList()).isSorted();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void rejectsDeadlinesBeyondTheHorizon() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 2, 0);
+
+        wheel.schedule("edge", wheel.horizonMillis());
+        assertThatThrownBy(() -> wheel.schedule("far", wheel.horizonMillis() + TICK))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
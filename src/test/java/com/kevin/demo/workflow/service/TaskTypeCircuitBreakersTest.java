@@ -0,0 +1,157 @@
+package com.kevin.demo.workflow.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.kevin.demo.workflow.service.TaskTypeCircuitBreakers.State;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TaskTypeCircuitBreakersTest {
+
+    private static final String TYPE = "email";
+    private static final long START = 1_000_000;
+    private static final long WINDOW = 10_000;
+    private static final long OPEN = 30_000;
+
+    // window of 10 one-second buckets, opens at 50% failures of at least 4 outcomes, 2 probes
+    private final TaskTypeCircuitBreakers breakers = new TaskTypeCircuitBreakers(
+            new CircuitBreakerProperties(true, Duration.ofMillis(WINDOW), 4, 0.5, Duration.ofMillis(OPEN), 2),
+            new SimpleMeterRegistry()
+    );
+
+    @Test
+    void opensOnceFailureRateReachesThresholdWithMinimumCalls() {
+        breakers.record(TYPE, 1L, false, START);
+        breakers.record(TYPE, 2L, false, START);
+        breakers.record(TYPE, 3L, true, START);
+        assertThat(breakers.state(TYPE)).isEqualTo(State.CLOSED);
+
+        breakers.record(TYPE, 4L, true, START + 1);
+        assertThat(breakers.state(TYPE)).isEqualTo(State.OPEN);
+        assertThat(breakers.blockedTypes(START + 1)).containsExactly(TYPE);
+        assertThat(breakers.tryClaim(TYPE, 5L, START + OPEN - 1)).isFalse();
+    }
+
+    @Test
+    void staysClosedBelowThreshold() {
+        breakers.record(TYPE, 1L, false, START);
+        for (long id = 2; id <= 4; id++) {
+            breakers.record(TYPE, id, true, START);
+        }
+
+        assertThat(breakers.state(TYPE)).isEqualTo(State.CLOSED);
+        assertThat(breakers.tryClaim(TYPE, 5L, START)).isTrue();
+    }
+
+    @Test
+    void outcomesLeaveTheWindowAsItAdvances() {
+        for (long id = 1; id <= 3; id++) {
+            breakers.record(TYPE, id, false, START);
+        }
+        // the first three failures have left the window
+        breakers.record(TYPE, 4L, false, START + WINDOW);
+        assertThat(breakers.state(TYPE)).isEqualTo(State.CLOSED);
+
+        // one bucket on, the failure just above still counts
+        for (long id = 5; id <= 7; id++) {
+            breakers.record(TYPE, id, false, START + WINDOW + 1_000);
+        }
+        assertThat(breakers.state(TYPE)).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void halfOpenCountsOnlyOutcomesOfProbes() {
+        long halfOpen = open();
+
+        assertThat(breakers.tryClaim(TYPE, 11L, halfOpen)).isTrue();
+        assertThat(breakers.tryClaim(TYPE, 12L, halfOpen)).isTrue();
+        assertThat(breakers.tryClaim(TYPE, 13L, halfOpen)).isFalse();
+        assertThat(breakers.state(TYPE)).isEqualTo(State.HALF_OPEN);
+        assertThat(breakers.blockedTypes(halfOpen)).containsExactly(TYPE);
+
+        // late outcomes of tasks claimed before the circuit opened
+        breakers.record(TYPE, 1L, false, halfOpen);
+        breakers.record(TYPE, 2L, true, halfOpen);
+        breakers.record(TYPE, 3L, true, halfOpen);
+        assertThat(breakers.state(TYPE)).isEqualTo(State.HALF_OPEN);
+
+        breakers.record(TYPE, 11L, true, halfOpen);
+        assertThat(breakers.state(TYPE)).isEqualTo(State.HALF_OPEN);
+        breakers.record(TYPE, 12L, true, halfOpen);
+        assertThat(breakers.state(TYPE)).isEqualTo(State.CLOSED);
+        assertThat(breakers.tryClaim(TYPE, 13L, halfOpen)).isTrue();
+    }
+
+    @Test
+    void failedProbeOpensAgain() {
+        long halfOpen = open();
+        breakers.tryClaim(TYPE, 11L, halfOpen);
+        breakers.tryClaim(TYPE, 12L, halfOpen);
+
+        breakers.record(TYPE, 11L, true, halfOpen);
+        breakers.record(TYPE, 12L, false, halfOpen + 1);
+        assertThat(breakers.state(TYPE)).isEqualTo(State.OPEN);
+        assertThat(breakers.tryClaim(TYPE, 13L, halfOpen + OPEN)).isFalse();
+
+        // a fresh set of probes after another open duration
+        assertThat(breakers.tryClaim(TYPE, 13L, halfOpen + 1 + OPEN)).isTrue();
+        assertThat(breakers.state(TYPE)).isEqualTo(State.HALF_OPEN);
+    }
+
+    @Test
+    void releasedProbeIsHandedOutAgain() {
+        long halfOpen = open();
+        breakers.tryClaim(TYPE, 11L, halfOpen);
+        breakers.tryClaim(TYPE, 12L, halfOpen);
+
+        // not a probe: nothing to give back
+        breakers.release(TYPE, 1L);
+        assertThat(breakers.tryClaim(TYPE, 13L, halfOpen)).isFalse();
+
+        breakers.release(TYPE, 11L);
+        assertThat(breakers.isProbe(TYPE, 11L)).isFalse();
+        assertThat(breakers.tryClaim(TYPE, 13L, halfOpen)).isTrue();
+
+        // released twice still frees one slot
+        breakers.release(TYPE, 11L);
+        assertThat(breakers.tryClaim(TYPE, 14L, halfOpen)).isFalse();
+
+        // the released task's outcome no longer counts
+        breakers.record(TYPE, 11L, false, halfOpen);
+        assertThat(breakers.state(TYPE)).isEqualTo(State.HALF_OPEN);
+    }
+
+    @Test
+    void probesWithoutOutcomeExpire() {
+        long halfOpen = open();
+        breakers.tryClaim(TYPE, 11L, halfOpen);
+        breakers.tryClaim(TYPE, 12L, halfOpen);
+        assertThat(breakers.blockedTypes(halfOpen + OPEN - 1)).containsExactly(TYPE);
+
+        assertThat(breakers.blockedTypes(halfOpen + OPEN)).isEmpty();
+        assertThat(breakers.tryClaim(TYPE, 13L, halfOpen + OPEN)).isTrue();
+        assertThat(breakers.tryClaim(TYPE, 14L, halfOpen + OPEN)).isTrue();
+        assertThat(breakers.isProbe(TYPE, 11L)).isFalse();
+
+        // the expired probe reports after all; only the new ones decide
+        breakers.record(TYPE, 11L, false, halfOpen + OPEN);
+        assertThat(breakers.state(TYPE)).isEqualTo(State.HALF_OPEN);
+        breakers.record(TYPE, 13L, true, halfOpen + OPEN);
+        breakers.record(TYPE, 14L, true, halfOpen + OPEN);
+        assertThat(breakers.state(TYPE)).isEqualTo(State.CLOSED);
+    }
+
+    // opens the circuit at START; returns when it half-opens
+    private long open() {
+        for (long id = 1; id <= 4; id++) {
+            breakers.record(TYPE, id, false, START);
+        }
+        assertThat(breakers.state(TYPE)).isEqualTo(State.OPEN);
+        assertThat(breakers.tryClaim(TYPE, 10L, START + OPEN - 1)).isFalse();
+        return START + OPEN;
+    }
+}
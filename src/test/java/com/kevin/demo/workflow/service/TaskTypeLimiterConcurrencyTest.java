@@ -0,0 +1,95 @@
+package com.kevin.demo.workflow.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.kevin.demo.workflow.domain.Task;
+
+// two claimers race for one capped type; the scheduler is off, so nothing else claims.
+// Runs against its own schema, migrated by Flyway on first use, never workflow_db
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:mysql://localhost:3306/workflow_test"
+                + "?createDatabaseIfNotExist=true&rewriteBatchedStatements=true",
+        "workflow.scheduler.enabled=false",
+        "workflow.task-types.limits." + TaskTypeLimiterConcurrencyTest.TYPE + ".max-in-flight="
+                + TaskTypeLimiterConcurrencyTest.MAX_IN_FLIGHT
+})
+class TaskTypeLimiterConcurrencyTest {
+
+    static final String TYPE = "limiter-test";
+    static final int MAX_IN_FLIGHT = 3;
+
+    private static final int TASKS = 20;
+    private static final int ROUNDS = 50;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    @Test
+    void concurrentClaimersNeverExceedMaxInFlight() throws Exception {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            Task task = new Task("limiter-" + i, null);
+            task.setQueue(TYPE);
+            task.setTaskType(TYPE);
+            tasks.add(task);
+        }
+        List<Long> ids = taskService.createTasks(tasks, true).stream().map(Task::getId).toList();
+
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<List<Long>> claimer = () -> {
+            start.await();
+            List<Long> claimed = new ArrayList<>();
+            for (int round = 0; round < ROUNDS; round++) {
+                for (Task task : taskService.claimQueuedBatch(2)) {
+                    if (TYPE.equals(task.getTaskType())) claimed.add(task.getId());
+                }
+            }
+            return claimed;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Long> processing = new ArrayList<>();
+            Future<List<Long>> first = executor.submit(claimer);
+            Future<List<Long>> second = executor.submit(claimer);
+            start.countDown();
+            processing.addAll(first.get(60, TimeUnit.SECONDS));
+            processing.addAll(second.get(60, TimeUnit.SECONDS));
+
+            assertThat(processing).doesNotHaveDuplicates().hasSize(MAX_IN_FLIGHT);
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(60, TimeUnit.SECONDS);
+            delete(ids);
+        }
+    }
+
+    // removes the tasks and everything recorded for them, children first
+    private void delete(List<Long> ids) {
+        Map<String, Object> params = Map.of("ids", ids, "type", TYPE);
+        jdbc.update("delete from task_transition_outbox where task_id in (:ids)", params);
+        jdbc.update("delete from task_transitions where task_id in (:ids)", params);
+        jdbc.update("delete from task_payloads where task_id in (:ids)", params);
+        jdbc.update("delete from task_dependencies where task_id in (:ids)", params);
+        jdbc.update("delete from tasks where id in (:ids)", params);
+        jdbc.update("delete from task_type_limits where task_type = :type", params);
+    }
+}